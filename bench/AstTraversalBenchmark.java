@@ -0,0 +1,103 @@
+import ast.*;
+import ast.semantic_checks.AstSemanticChecksVisitor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AstTraversalBenchmark {
+    /* The visitors of the compiler over every node of the corpus, which read the children through the indexed
+     * accessors (actualCount and actual, statementCount and statement, ...): the node counter, and the semantic
+     * checks. The listAccessors baseline is the node counter walking the lists instead (a new list of the actuals of
+     * every call, and an iterator per list), as the visitors did before. The node counter counts into an int array
+     * indexed by the node kind, so all it allocates per node is what the traversal does. Run with "-prof gc":
+     * gc.alloc.rate.norm divided by the node count of the corpus is the allocation per visited node. */
+
+    @Benchmark
+    public void nodeCount(CorpusState state, Blackhole blackhole) {
+        for (Program program : state.programs) {
+            var counter = new AstNodeCountVisitor();
+            program.accept(counter);
+            blackhole.consume(counter.getTotal());
+        }
+    }
+
+    @Benchmark
+    public void listAccessors(CorpusState state, Blackhole blackhole) {
+        for (Program program : state.programs) {
+            var counter = new ListNodeCountVisitor();
+            program.accept(counter);
+            blackhole.consume(counter.getTotal());
+        }
+    }
+
+    @Benchmark
+    public void semanticChecks(CorpusState state, Blackhole blackhole) {
+        for (Program program : state.programs) {
+            var astSemChk = new AstSemanticChecksVisitor(program);
+            astSemChk.visit(program);
+            blackhole.consume(astSemChk.getString());
+        }
+    }
+
+    // The node counter, but through the list accessors of the nodes that have lists
+    private static class ListNodeCountVisitor extends AstNodeCountVisitor {
+        @Override
+        public void visit(Program program) {
+            count(NodeKind.PROGRAM);
+            program.mainClass().accept(this);
+            for (ClassDecl classDecl : program.classDecls()) {
+                classDecl.accept(this);
+            }
+        }
+
+        @Override
+        public void visit(ClassDecl classDecl) {
+            count(NodeKind.CLASS_DECL);
+            for (VarDecl field : classDecl.fields()) {
+                field.accept(this);
+            }
+            for (MethodDecl methodDecl : classDecl.methoddecls()) {
+                methodDecl.accept(this);
+            }
+        }
+
+        @Override
+        public void visit(MethodDecl methodDecl) {
+            count(NodeKind.METHOD_DECL);
+            methodDecl.returnType().accept(this);
+            for (FormalArg formal : methodDecl.formals()) {
+                formal.accept(this);
+            }
+            for (VarDecl varDecl : methodDecl.vardecls()) {
+                varDecl.accept(this);
+            }
+            for (Statement statement : methodDecl.body()) {
+                statement.accept(this);
+            }
+            methodDecl.ret().accept(this);
+        }
+
+        @Override
+        public void visit(BlockStatement blockStatement) {
+            count(NodeKind.BLOCK);
+            for (Statement statement : blockStatement.statements()) {
+                statement.accept(this);
+            }
+        }
+
+        @Override
+        public void visit(MethodCallExpr e) {
+            count(NodeKind.CALL);
+            e.ownerExpr().accept(this);
+            for (Expr actual : e.actuals()) {
+                actual.accept(this);
+            }
+        }
+    }
+}
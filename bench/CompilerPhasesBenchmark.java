@@ -0,0 +1,129 @@
+import ast.AstXMLSerializer;
+import ast.MethodDecl;
+import ast.Program;
+import ast.llvm_formatting.AstLLVMFormatVisitor;
+import ast.semantic_checks.AstSemanticChecksVisitor;
+import java_cup.runtime.Symbol;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerPhasesBenchmark {
+    /* One benchmark per compiler phase. Every invocation runs the phase over the whole corpus, so the scores of the
+     * different phases of the same corpus can be compared directly. */
+
+    @Benchmark
+    public void lex(CorpusState state, Blackhole blackhole) throws Exception {
+        for (String source : state.sources) {
+            Lexer lexer = new Lexer(new StringReader(source));
+            Symbol token;
+            do {
+                token = lexer.next_token();
+                blackhole.consume(token.value);
+            } while (token.sym != sym.EOF);
+        }
+    }
+
+    @Benchmark
+    public void lexSourceBuffer(CorpusState state, Blackhole blackhole) throws Exception {
+        /* Decoding the bytes of the source is part of the measurement, as the lexer scans (and at its end, moves)
+         * the decoded buffer in place */
+        for (byte[] bytes : state.sourceBytes) {
+            Lexer lexer = new Lexer(SourceBuffer.decode(ByteBuffer.wrap(bytes)));
+            Symbol token;
+            do {
+                token = lexer.next_token();
+                blackhole.consume(token.value);
+            } while (token.sym != sym.EOF);
+        }
+    }
+
+    @Benchmark
+    public void parse(CorpusState state, Blackhole blackhole) throws Exception {
+        for (String source : state.sources) {
+            blackhole.consume(CorpusState.parse(source));
+        }
+    }
+
+    @Benchmark
+    public void parseDescent(CorpusState state, Blackhole blackhole) throws Exception {
+        /* Against parse: the allocation rates of the two parsers are reported by running with "-prof gc" */
+        for (String source : state.sources) {
+            blackhole.consume(new DescentParser(new Lexer(new StringReader(source)), false).parse());
+        }
+    }
+
+    @Benchmark
+    public void parseParallel(CorpusState state, Blackhole blackhole) throws Exception {
+        // The classes are parsed on the common fork join pool, so the score scales with the cores on the large corpora
+        for (byte[] bytes : state.sourceBytes) {
+            SourceBuffer source = SourceBuffer.decode(ByteBuffer.wrap(bytes));
+            blackhole.consume(new ParallelParser(source, Lexer::new, false).parse());
+        }
+    }
+
+    @Benchmark
+    public void serialize(CorpusState state, Blackhole blackhole) throws Exception {
+        var xmlSerializer = new AstXMLSerializer();
+        for (Program program : state.programs) {
+            var xml = new ByteArrayOutputStream();
+            xmlSerializer.serialize(program, xml);
+            blackhole.consume(xml.size());
+        }
+    }
+
+    @Benchmark
+    public void deserialize(CorpusState state, Blackhole blackhole) throws Exception {
+        var xmlSerializer = new AstXMLSerializer();
+        for (byte[] xml : state.xmls) {
+            blackhole.consume(xmlSerializer.deserialize(new ByteArrayInputStream(xml)));
+        }
+    }
+
+    @Benchmark
+    public void semanticChecks(CorpusState state, Blackhole blackhole) {
+        for (Program program : state.programs) {
+            var astSemChk = new AstSemanticChecksVisitor(program);
+            astSemChk.visit(program);
+            blackhole.consume(astSemChk.getString());
+        }
+    }
+
+    @Benchmark
+    public void llvmFormat(CorpusState state, Blackhole blackhole) throws Exception {
+        for (Program program : state.programs) {
+            // Streaming to a null writer, so only the formatting itself is measured
+            var LLVMFormatter = new AstLLVMFormatVisitor(program, Writer.nullWriter());
+            LLVMFormatter.visit(program);
+            LLVMFormatter.flush();
+            blackhole.consume(LLVMFormatter);
+        }
+    }
+
+    @Benchmark
+    public void rename(CorpusState state) {
+        /* Renames the first method of every program and then renames it back, so that the shared ASTs are left
+         * unchanged for the next invocation */
+        for (Program program : state.programs) {
+            MethodDecl method = CorpusState.firstMethod(program);
+            if (method == null) {
+                continue;
+            }
+            String name = method.name();
+            String newName = name + "Renamed";
+            RenamingFactory.rename(program, name, newName, method.lineNumber, true);
+            RenamingFactory.rename(program, newName, name, method.lineNumber, true);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import ast.AstXMLSerializer;
+import ast.ClassDecl;
+import ast.MethodDecl;
+import ast.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+public class CorpusState {
+    /* The inputs of the benchmarks: every .java file of a corpus directory, prepared up front in each of the forms
+     * the phases consume (source text, AST, marshalled XML), so a benchmark only measures its own phase.
+     * The corpus directories are relative to the repository root, which is the working directory of "ant bench". */
+
+    /* A corpus is either a directory of .java files, or "synthetic:<classes>" for a single program of the given
+     * number of classes by the ProgramGenerator (roughly 140 lines per class) */
+    @Param({"examples/ast", "examples/ex3/test_cases/passing", "synthetic:100", "synthetic:1000"})
+    public String corpus;
+
+    public List<String> sources;
+    public List<byte[]> sourceBytes;
+    public List<Program> programs;
+    public List<byte[]> xmls;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        sources = new ArrayList<>();
+        sourceBytes = new ArrayList<>();
+        programs = new ArrayList<>();
+        xmls = new ArrayList<>();
+        var xmlSerializer = new AstXMLSerializer();
+        for (String source : readSources()) {
+            Program program;
+            try {
+                program = parse(source);
+            } catch (Parser.SyntaxError e) {
+                // Some of the older test cases are not in the grammar of the parser (e.g. non public methods)
+                continue;
+            }
+            sources.add(source);
+            sourceBytes.add(source.getBytes(StandardCharsets.UTF_8));
+            programs.add(program);
+
+            var xml = new ByteArrayOutputStream();
+            xmlSerializer.serialize(program, xml);
+            xmls.add(xml.toByteArray());
+        }
+    }
+
+    static Program parse(String source) throws Exception {
+        Parser parser = new Parser(new Lexer(new StringReader(source)), false);
+        return (Program) parser.parse().value;
+    }
+
+    /* The first method of the first class that has one, as a renaming target (null when there is no such method) */
+    static MethodDecl firstMethod(Program program) {
+        for (ClassDecl classDecl : program.classDecls()) {
+            if (!classDecl.methoddecls().isEmpty()) {
+                return classDecl.methoddecls().get(0);
+            }
+        }
+        return null;
+    }
+
+    private List<String> readSources() throws IOException {
+        List<String> sources = new ArrayList<>();
+        if (corpus.startsWith("synthetic:")) {
+            int classes = Integer.parseInt(corpus.substring("synthetic:".length()));
+            var source = new StringWriter();
+            new ProgramGenerator().classes(classes).depth(6).methods(5).fields(6).statements(4).nesting(2)
+                    .exprSize(4).generate(new PrintWriter(source));
+            sources.add(source.toString());
+        } else {
+            for (Path file : listSources(Paths.get(corpus))) {
+                sources.add(Files.readString(file));
+            }
+        }
+        return sources;
+    }
+
+    private static List<Path> listSources(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            return paths.filter(path -> path.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import ast.AstNodeCountVisitor;
+import ast.FlatAst;
+import ast.NodeKind;
+import ast.Program;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlatAstBenchmark {
+    /* The flat AST (FlatAst) against the AST objects of the same corpus: the conversions in both directions, and a
+     * pass over all the nodes (counting the nodes of each kind), which is a visitor over the objects and a linear
+     * scan over the flat arrays */
+
+    private List<FlatAst> flatAsts;
+
+    @Setup(Level.Trial)
+    public void prepare(CorpusState state) {
+        flatAsts = new ArrayList<>();
+        for (Program program : state.programs) {
+            flatAsts.add(FlatAst.of(program));
+        }
+    }
+
+    @Benchmark
+    public void flatten(CorpusState state, Blackhole blackhole) {
+        for (Program program : state.programs) {
+            blackhole.consume(FlatAst.of(program));
+        }
+    }
+
+    @Benchmark
+    public void toProgram(Blackhole blackhole) {
+        for (FlatAst ast : flatAsts) {
+            blackhole.consume(ast.toProgram());
+        }
+    }
+
+    @Benchmark
+    public void countNodes(CorpusState state, Blackhole blackhole) {
+        for (Program program : state.programs) {
+            var counts = new AstNodeCountVisitor();
+            counts.visit(program);
+            blackhole.consume(counts.getTotal());
+        }
+    }
+
+    @Benchmark
+    public void countNodesFlat(Blackhole blackhole) {
+        for (FlatAst ast : flatAsts) {
+            int[] counts = new int[NodeKind.COUNT];
+            for (int node = 0; node < ast.size(); node++) {
+                counts[ast.kind(node)]++;
+            }
+            blackhole.consume(counts);
+        }
+    }
+}
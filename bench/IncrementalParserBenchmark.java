@@ -0,0 +1,65 @@
+import ast.Program;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalParserBenchmark {
+    /* The keystroke edits of an editor, applied by IncrementalParser to every program of the corpus, against
+     * CompilerPhasesBenchmark.parse of the same corpus. Each invocation makes an edit in the middle of the source
+     * (before the return of a method) and then undoes it, so both are measured and the source is left as it was. */
+
+    private List<IncrementalParser> parsers;
+    private int[] offsets;
+
+    @Setup(Level.Trial)
+    public void prepare(CorpusState state) throws Exception {
+        parsers = new ArrayList<>();
+        offsets = new int[state.sources.size()];
+        for (int i = 0; i < state.sources.size(); i++) {
+            // A program of its own, as the edits replace its methods
+            String source = state.sources.get(i);
+            parsers.add(new IncrementalParser(CorpusState.parse(source), source));
+            int offset = source.indexOf("return", source.length() / 2);
+            offsets[i] = offset >= 0 ? offset : source.lastIndexOf("return");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        for (IncrementalParser parser : parsers) {
+            parser.close();
+        }
+    }
+
+    @Benchmark
+    public void newLine(Blackhole blackhole) throws Exception {
+        // Shifts the line numbers of everything after the edit
+        edit("\n", blackhole);
+    }
+
+    @Benchmark
+    public void sameLine(Blackhole blackhole) throws Exception {
+        edit(" ", blackhole);
+    }
+
+    private void edit(String text, Blackhole blackhole) throws Exception {
+        for (int i = 0; i < parsers.size(); i++) {
+            if (offsets[i] < 0) {
+                continue;
+            }
+            IncrementalParser parser = parsers.get(i);
+            Program program = parser.edit(offsets[i], 0, text);
+            blackhole.consume(parser.edit(offsets[i], text.length(), ""));
+            blackhole.consume(program);
+        }
+    }
+}
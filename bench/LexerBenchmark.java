@@ -0,0 +1,124 @@
+import java_cup.runtime.Symbol;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+    /* The two modes of the lexer over inputs that are hard on the trailing context rules: long runs of whitespace
+     * around every dot and bracket ("whitespace:<run length>"), and long chains of method calls on long identifiers
+     * ("chain:<calls per chain>"). Both inputs grow linearly with their parameter, so a lexer that scans in linear
+     * time scores linearly in it as well. */
+
+    @Param({"whitespace:16", "whitespace:256", "whitespace:4096", "chain:16", "chain:256", "chain:4096"})
+    public String input;
+
+    @Param({"lookahead", "plain"})
+    public String mode;
+
+    // The number of statements of the input, each with one run of the pathological pattern
+    private static final int STATEMENTS = 100;
+
+    private byte[] source;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        int separator = input.indexOf(':');
+        String shape = input.substring(0, separator);
+        int size = Integer.parseInt(input.substring(separator + 1));
+
+        var body = new StringBuilder();
+        for (int i = 0; i < STATEMENTS; i++) {
+            if (shape.equals("whitespace")) {
+                whitespaceStatements(body, " ".repeat(size - 1) + "\n");
+            } else if (shape.equals("chain")) {
+                chainStatement(body, size);
+            } else {
+                throw new IllegalArgumentException("unknown input shape " + shape);
+            }
+        }
+        source = ("class Main {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        System.out.println(new Pathological().run());\n"
+                + "    }\n"
+                + "}\n"
+                + "class Pathological {\n"
+                + "    public int run() {\n"
+                + "        int[] arr;\n"
+                + "        int x;\n"
+                + body
+                + "        return arr.length;\n"
+                + "    }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void whitespaceStatements(StringBuilder body, String ws) {
+        // An array allocation, a method call and an array length, with the run around each of their tokens
+        body.append("        arr = new").append(ws).append("int").append(ws).append('[').append(ws).append("10")
+                .append(ws).append(']').append(ws).append(";\n");
+        body.append("        x = this").append(ws).append('.').append(ws).append("run").append(ws).append('(')
+                .append(ws).append(')').append(ws).append(";\n");
+        body.append("        x = arr").append(ws).append('.').append(ws).append("length").append(ws).append(";\n");
+    }
+
+    private static void chainStatement(StringBuilder body, int calls) {
+        body.append("        x = this");
+        for (int i = 0; i < calls; i++) {
+            body.append(".aRatherLongMethodIdentifierNumber").append(i % 10).append("()");
+        }
+        body.append(";\n");
+    }
+
+    private Lexer newLexer() throws Exception {
+        Lexer lexer = new Lexer(SourceBuffer.decode(ByteBuffer.wrap(source)));
+        if (mode.equals("plain")) {
+            lexer.plainTokens();
+        }
+        return lexer;
+    }
+
+    @Benchmark
+    public void lex(Blackhole blackhole) throws Exception {
+        Lexer lexer = newLexer();
+        Symbol token;
+        do {
+            token = lexer.next_token();
+            blackhole.consume(token.value);
+        } while (token.sym != sym.EOF);
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        return new Parser(newLexer(), false).parse().value;
+    }
+
+    @Benchmark
+    public TokenBuffer tokenBuffer() throws Exception {
+        // Against lex: the same scan, with no Symbol (nor boxed value) per token
+        return TokenBuffer.scan(SourceBuffer.decode(ByteBuffer.wrap(source)), mode.equals("plain"), false);
+    }
+
+    @Benchmark
+    public TokenBuffer tokenBufferLazyLines() throws Exception {
+        // Against tokenBuffer: with no line and column counting in the lexer, and a line table instead
+        return TokenBuffer.scan(SourceBuffer.decode(ByteBuffer.wrap(source)), mode.equals("plain"), true);
+    }
+
+    @Benchmark
+    public Object parseTokenBuffer() throws Exception {
+        return new DescentParser(tokenBuffer(), false).parse();
+    }
+
+    @Benchmark
+    public Object parseTokenBufferLazyLines() throws Exception {
+        return new DescentParser(tokenBufferLazyLines(), false).parse();
+    }
+}
@@ -0,0 +1,35 @@
+class Main {
+    public static void main(String[] a) {
+        System.out.println(3 +);
+    }
+}
+
+class Tree {
+    Tree left;
+    int 5;
+
+    public Tree getLeft(int a int b) {
+        left = ;
+        return left;
+    }
+
+    public int fun() {
+        int x;
+        x = 1 < ;
+        if (x) x = 2; else x = 3;
+        return x +;
+    }
+
+    public int ok() {
+        return 0;
+    }
+}
+
+class Node extends {
+    int v;
+
+    public int get() {
+        v = v * ;
+        return v;
+    }
+}
@@ -31,7 +31,8 @@ public class AstLineNumberVisitor implements Visitor {
     @Override
     public void visit(Program program) {
         program.mainClass().accept(this);
-        for (ClassDecl classdecl : program.classDecls()) {
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            ClassDecl classdecl = program.classDecl(i);
             if (renamedObject != null) {
                 // The renamed object has already been found; hence existing
                 return;
@@ -45,14 +46,16 @@ public class AstLineNumberVisitor implements Visitor {
     public void visit(ClassDecl classDecl) {
         currentClass = classDecl.name();
 
-        for (var fieldDecl : classDecl.fields()) {
+        for (int i = 0; i < classDecl.fieldCount(); i++) {
+            var fieldDecl = classDecl.field(i);
             if (!isMethod && fieldDecl.lineNumber == lineNumber && fieldDecl.name().equals(originalName)) {
                 renamedObject = RenamingType.FIELD;
                 return;
             }
 
         }
-        for (var methodDecl : classDecl.methoddecls()) {
+        for (int i = 0; i < classDecl.methodDeclCount(); i++) {
+            var methodDecl = classDecl.methodDecl(i);
             if (isMethod && methodDecl.lineNumber == lineNumber && methodDecl.name().equals(originalName)) {
                 renamedObject = RenamingType.METHOD;
                 return;
@@ -77,14 +80,16 @@ public class AstLineNumberVisitor implements Visitor {
     public void visit(MethodDecl methodDecl) {
         currentMethod = methodDecl.name();
 
-        for (var formal : methodDecl.formals()) {
+        for (int i = 0; i < methodDecl.formalCount(); i++) {
+            var formal = methodDecl.formal(i);
             if (!isMethod && formal.lineNumber == lineNumber && formal.name().equals(originalName)) {
                 renamedObject = RenamingType.FORMAL_VARIABLE;
                 return;
             }
         }
 
-        for (var varDecl : methodDecl.vardecls()) {
+        for (int i = 0; i < methodDecl.varDeclCount(); i++) {
+            var varDecl = methodDecl.varDecl(i);
             if (!isMethod && varDecl.lineNumber == lineNumber && varDecl.name().equals(originalName)) {
                 renamedObject = RenamingType.LOCAL_VARIABLE;
                 return;
@@ -30,7 +30,8 @@ public class AstMethodRenamingVisitor implements Visitor {
 
         program.mainClass().accept(this);
 
-        for (ClassDecl classDecl : program.classDecls()) {
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            ClassDecl classDecl = program.classDecl(i);
             classDecl.accept(this);
         }
     }
@@ -42,7 +43,8 @@ public class AstMethodRenamingVisitor implements Visitor {
         // Setting the context class fields to be the pre-calculated fields for this class
         contextClassName = classDecl.name();
         contextClassFields = typesOfFields.get(classDecl.name());
-        for (MethodDecl methodDecl : classDecl.methoddecls()) {
+        for (int i = 0; i < classDecl.methodDeclCount(); i++) {
+            MethodDecl methodDecl = classDecl.methodDecl(i);
             methodDecl.accept(this);
         }
     }
@@ -59,16 +61,19 @@ public class AstMethodRenamingVisitor implements Visitor {
         contextMethodFields.putAll(contextClassFields);
 
         // Setting (or overriding) the type of the method formal variables
-        for (FormalArg formalArg : methodDecl.formals()) {
+        for (int i = 0; i < methodDecl.formalCount(); i++) {
+            FormalArg formalArg = methodDecl.formal(i);
             contextMethodFields.put(formalArg.name(), utils.getType(formalArg.type()));
         }
 
         // Setting (or overriding) the type of the declared method variables
-        for (VarDecl varDecl : methodDecl.vardecls()) {
+        for (int i = 0; i < methodDecl.varDeclCount(); i++) {
+            VarDecl varDecl = methodDecl.varDecl(i);
             contextMethodFields.put(varDecl.name(), utils.getType(varDecl.type()));
         }
 
-        for (var stmt : methodDecl.body()) {
+        for (int i = 0; i < methodDecl.statementCount(); i++) {
+            var stmt = methodDecl.statement(i);
             stmt.accept(this);
         }
 
@@ -87,7 +92,8 @@ public class AstMethodRenamingVisitor implements Visitor {
 
     @Override
     public void visit(BlockStatement blockStatement) {
-        for (var s : blockStatement.statements()) {
+        for (int i = 0; i < blockStatement.statementCount(); i++) {
+            var s = blockStatement.statement(i);
             s.accept(this);
         }
     }
@@ -179,7 +185,8 @@ public class AstMethodRenamingVisitor implements Visitor {
             }
         }
 
-        for (Expr arg : e.actuals()) {
+        for (int i = 0; i < e.actualCount(); i++) {
+            Expr arg = e.actual(i);
             arg.accept(this);
         }
     }
@@ -23,13 +23,15 @@ public class AstVariableRenamingVisitor implements Visitor {
     public void visit(MethodDecl methodDecl) {
         /* We assume that the original variable declaration has already been renamed. Thus, if we encounter another
         * declaration of the same name, it means it has been redeclared and the process should terminate. */
-        for (var varDecl : methodDecl.vardecls()) {
+        for (int i = 0; i < methodDecl.varDeclCount(); i++) {
+            var varDecl = methodDecl.varDecl(i);
             if (varDecl.name().equals(variableName)) {
                 return;
             }
         }
 
-        for (var stmt : methodDecl.body()) {
+        for (int i = 0; i < methodDecl.statementCount(); i++) {
+            var stmt = methodDecl.statement(i);
             stmt.accept(this);
         }
 
@@ -44,7 +46,8 @@ public class AstVariableRenamingVisitor implements Visitor {
 
     @Override
     public void visit(BlockStatement blockStatement) {
-        for (var s : blockStatement.statements()) {
+        for (int i = 0; i < blockStatement.statementCount(); i++) {
+            var s = blockStatement.statement(i);
             s.accept(this);
         }
     }
@@ -127,7 +130,8 @@ public class AstVariableRenamingVisitor implements Visitor {
     public void visit(MethodCallExpr e) {
         e.ownerExpr().accept(this);
 
-        for (Expr arg : e.actuals()) {
+        for (int i = 0; i < e.actualCount(); i++) {
+            Expr arg = e.actual(i);
             arg.accept(this);
         }
     }
@@ -0,0 +1,196 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+public class BatchCompiler {
+    /* Runs many compilation commands in a single JVM, on a work-stealing pool sized to the available cores.
+     * The commands are given either as a manifest file, holding one command line per line (blank lines and lines
+     * starting with '#' are ignored):
+     *      batch <manifest>
+     * or as a directory, whose .java files are parsed, whose .xml files are unmarshalled and whose .bin files are
+     * loaded as binary ASTs:
+     *      batch <action> <input dir> <output dir>
+     * (the output of <input dir>/x/y.java is written to <output dir>/x/y.java.ll, .xml, .bin, .java or .res by the
+     * action, and the build action writes both <output dir>/x/y.java.res and, if it passes the checks, .ll)
+     * Every command gets its own lexer, parser and visitors, and a syntax error only fails its own command. */
+
+    public static class Result {
+        final String[] command;
+        final boolean success;
+        final long inputBytes;
+        final long elapsedNanos;
+        // The CPU time of the thread that ran the command (-1 when the JVM does not measure it)
+        final long cpuNanos;
+
+        private Result(String[] command, boolean success, long inputBytes, long elapsedNanos, long cpuNanos) {
+            this.command = command;
+            this.success = success;
+            this.inputBytes = inputBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.cpuNanos = cpuNanos;
+        }
+    }
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final int parallelism;
+
+    public BatchCompiler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchCompiler(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void run(String[] args) throws IOException, InterruptedException {
+        List<String[]> commands;
+        if (args.length == 2) {
+            commands = readManifest(Paths.get(args[1]));
+        } else if (args.length == 4) {
+            commands = listDirectory(args[1], Paths.get(args[2]), Paths.get(args[3]));
+        } else {
+            throw new IllegalArgumentException("usage: batch <manifest> | batch <action> <input dir> <output dir>");
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = compileAll(commands);
+        long elapsed = System.nanoTime() - start;
+
+        report(results, elapsed);
+    }
+
+    public List<Result> compileAll(List<String[]> commands) throws InterruptedException {
+        List<Callable<Result>> tasks = new ArrayList<>();
+        for (String[] command : commands) {
+            tasks.add(() -> compile(command));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // invokeAll returns the futures in the order of the given tasks, so the report is deterministic
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result compile(String[] command) {
+        long inputBytes = new File(command[command.length - 2]).length();
+
+        long start = System.nanoTime();
+        long cpuStart = cpuTime();
+        boolean success = Main.run(command, false);
+        long cpu = cpuStart < 0 ? -1 : cpuTime() - cpuStart;
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(command, success, inputBytes, elapsed, cpu);
+    }
+
+    private long cpuTime() {
+        return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private List<String[]> readManifest(Path manifest) throws IOException {
+        return Files.readAllLines(manifest).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> line.split("\\s+"))
+                .collect(Collectors.toList());
+    }
+
+    private List<String[]> listDirectory(String action, Path inputDir, Path outputDir) throws IOException {
+        String extension;
+        if (action.equals("marshal")) {
+            extension = ".xml";
+        } else if (action.equals("binary")) {
+            extension = ".bin";
+        } else if (action.equals("print")) {
+            extension = ".java";
+        } else if (action.equals("semantic")) {
+            extension = ".res";
+        } else if (action.equals("compile") || action.equals("build")) {
+            extension = ".ll";
+        } else {
+            throw new IllegalArgumentException("unsupported batch action " + action);
+        }
+
+        List<Path> inputs;
+        try (var paths = Files.walk(inputDir)) {
+            inputs = paths.filter(Files::isRegularFile)
+                    .filter(path -> inputMethod(path) != null)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<String[]> commands = new ArrayList<>();
+        for (Path input : inputs) {
+            Path output = outputDir.resolve(inputDir.relativize(input) + extension);
+            Files.createDirectories(output.getParent());
+            commands.add(new String[]{inputMethod(input), action, input.toString(), output.toString()});
+        }
+        return commands;
+    }
+
+    private static String inputMethod(Path input) {
+        String name = input.toString();
+        if (name.endsWith(".java")) {
+            return "parse";
+        } else if (name.endsWith(".xml")) {
+            return "unmarshal";
+        } else if (name.endsWith(".bin")) {
+            return "unbinary";
+        }
+        return null;
+    }
+
+    private void report(List<Result> results, long elapsedNanos) {
+        long failed = 0;
+        long totalBytes = 0;
+        long totalElapsedNanos = 0;
+        long totalCpuNanos = 0;
+        for (Result result : results) {
+            System.out.println(String.format("%s %.3f ms %s", result.success ? "OK" : "ERROR",
+                    result.elapsedNanos / 1e6, String.join(" ", result.command)));
+            if (!result.success) {
+                failed++;
+            }
+            totalBytes += result.inputBytes;
+            totalElapsedNanos += result.elapsedNanos;
+            if (totalCpuNanos >= 0) {
+                totalCpuNanos = result.cpuNanos < 0 ? -1 : totalCpuNanos + result.cpuNanos;
+            }
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        String summary = String.format("%d files (%d failed) on %d threads in %.3f s: %.1f files/s, %.1f KB/s",
+                results.size(), failed, parallelism, seconds, results.size() / seconds, totalBytes / 1024.0 / seconds);
+        /* The speedup is the summed wall time of the compilations over the wall time of the batch, i.e. how much
+         * sooner the batch finished than running its compilations one after the other would have. The utilization is
+         * their CPU time over the wall time of the batch, the number of cores kept busy on average. */
+        summary += String.format(" (%.3f s of compilations, %.2fx speedup", totalElapsedNanos / 1e9,
+                totalElapsedNanos / (double) elapsedNanos);
+        if (totalCpuNanos >= 0) {
+            summary += String.format(", %.2f cores utilized", totalCpuNanos / (double) elapsedNanos);
+        }
+        System.out.println(summary + ")");
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class CompilationCache {
+    /* A content addressed on-disk cache of compilation outputs. An entry is keyed by a hash of the compiler version,
+     * the input method, the action and the bytes of the input file, so a hit can be served without lexing, parsing
+     * or even unmarshalling the input. An entry holds the output file, and the text that the compilation printed to
+     * System.out (the reasons of the failed semantic checks), which a hit prints again: the length of the UTF-8 text
+     * as an int, the text, the length of the output file as a long, and then its bytes. An entry that does not read
+     * back as such (e.g. truncated by a crash or a full disk) is deleted and taken as a miss.
+     * The cache is bounded: entries are touched when they are hit, and the least recently used entries are evicted
+     * once the total size exceeds the limit, down to 3/4 of the limit (so that the next eviction is not due on the
+     * next store). The process tracks the total size of the directory as it stores entries, and only walks the
+     * directory on its first store and when the tracked size exceeds the limit (the directory may be shared with
+     * other processes, so the walk recounts it). */
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static String compilerVersion;
+
+    // Starts at the clock so that concurrent processes seldom try the same names
+    private static final AtomicLong tempFiles = new AtomicLong(System.nanoTime());
+
+    // The tracked total size of each cache directory the process stored to, by its absolute path
+    private static final ConcurrentMap<Path, AtomicLong> directoryBytes = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public CompilationCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public static boolean isCacheable(String action) {
+        // Renaming depends on more than the input file, so it is never cached
+        return action.equals("semantic") || action.equals("compile") || action.equals("print") ||
+                action.equals("marshal") || action.equals("binary");
+    }
+
+    public String key(String inputMethod, String action, Path inputFile) throws IOException {
+        // Written part by part: a string concatenation would bootstrap its invokedynamic call site on every run
+        var keyBytes = new ByteArrayOutputStream();
+        for (String part : new String[]{compilerVersion(), inputMethod, action}) {
+            keyBytes.write(part.getBytes(StandardCharsets.UTF_8));
+            keyBytes.write(0);
+        }
+        keyBytes.write(Files.readAllBytes(inputFile));
+        return hash128(keyBytes.toByteArray());
+    }
+
+    /* Copies the cached output of the given key to outputFile, and prints the cached text to stdout. Returns false
+     * on a cache miss. */
+    public boolean fetch(String key, Path outputFile, PrintStream stdout) throws IOException {
+        Path entry = entryPath(key);
+        // Copying to a temporary file first, so a failed copy never leaves a partial outputFile
+        Path absoluteOutput = outputFile.toAbsolutePath();
+        Path temp = createTempFile(absoluteOutput.getParent(), absoluteOutput.getFileName().toString());
+        try {
+            String text;
+            try {
+                text = read(entry, temp);
+            } catch (NoSuchFileException e) {
+                // A miss, or an entry that has just been evicted
+                return false;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(entry);
+                return false;
+            }
+            Files.move(temp, absoluteOutput, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            stdout.print(text);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Reads an entry, copying the output file to outputFile, and returns the text. Throws on a corrupted entry.
+    private static String read(Path entry, Path outputFile) throws IOException {
+        try (var channel = Files.newByteChannel(entry);
+             var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+            long entryBytes = channel.size();
+            int textLength = in.readInt();
+            if (textLength < 0 || textLength > entryBytes - Integer.BYTES - Long.BYTES) {
+                throw new IOException("corrupted cache entry " + entry);
+            }
+            byte[] textBytes = new byte[textLength];
+            in.readFully(textBytes);
+            long outputLength = in.readLong();
+            if (outputLength != entryBytes - Integer.BYTES - textLength - Long.BYTES) {
+                throw new IOException("corrupted cache entry " + entry);
+            }
+            Files.copy(in, outputFile, StandardCopyOption.REPLACE_EXISTING);
+            return new String(textBytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /* Stores outputFile, and the text the compilation printed to stdout */
+    public void store(String key, Path outputFile, String stdoutText) throws IOException {
+        Path entry = entryPath(key);
+        Files.createDirectories(entry.getParent());
+
+        // Writing to a temporary file first, so concurrent readers never see a partial entry
+        Path temp = createTempFile(entry.getParent(), key);
+        long storedBytes;
+        try {
+            try (var out = new DataOutputStream(Files.newOutputStream(temp))) {
+                byte[] textBytes = stdoutText.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(textBytes.length);
+                out.write(textBytes);
+                out.writeLong(Files.size(outputFile));
+                Files.copy(outputFile, out);
+            }
+            storedBytes = Files.size(temp);
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        evict(storedBytes);
+    }
+
+    private void evict(long storedBytes) throws IOException {
+        Path directoryKey = directory.toAbsolutePath().normalize();
+        AtomicLong tracked = directoryBytes.get(directoryKey);
+        if (tracked != null && tracked.addAndGet(storedBytes) <= maxBytes) {
+            return;
+        }
+
+        // A single walk at a time in the process (the stores that cross the limit meanwhile walk again after it)
+        synchronized (directoryBytes) {
+            directoryBytes.put(directoryKey, new AtomicLong(evictLeastRecentlyUsed()));
+        }
+    }
+
+    /* Walks the directory and evicts the least recently used entries if it exceeds the limit. Returns the total size
+     * of the entries that are left. */
+    private long evictLeastRecentlyUsed() throws IOException {
+        List<Path> entries;
+        try (var paths = Files.walk(directory)) {
+            // Leaving out the temporary files, which are the entries that other stores are writing
+            entries = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+
+        List<File> files = new ArrayList<>();
+        long totalBytes = 0;
+        for (Path entry : entries) {
+            File file = entry.toFile();
+            files.add(file);
+            totalBytes += file.length();
+        }
+        if (totalBytes <= maxBytes) {
+            return totalBytes;
+        }
+
+        long targetBytes = maxBytes - maxBytes / 4;
+        files.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (totalBytes <= targetBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+        return totalBytes;
+    }
+
+    /* A new empty file in the directory, named after the prefix and a counter. Unlike Files.createTempFile, this does
+     * not seed a SecureRandom, whose security providers take longer to load than a cache hit takes. */
+    private static Path createTempFile(Path directory, String prefix) throws IOException {
+        while (true) {
+            StringBuilder name = new StringBuilder(prefix).append('.').append(tempFiles.incrementAndGet())
+                    .append(TEMP_SUFFIX);
+            try {
+                return Files.createFile(directory.resolve(name.toString()));
+            } catch (FileAlreadyExistsException e) {
+                // Taken by another process or left behind by a crashed one
+            }
+        }
+    }
+
+    private Path entryPath(String key) {
+        // Spreading the entries over sub-directories, to keep the directories small
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    static synchronized String compilerVersion() throws IOException {
+        /* The version is the hash of the compiled classes that the build writes to the compiler.version resource, so
+         * rebuilding the compiler invalidates the cache, and a run only reads a few bytes. Classes compiled without
+         * the build have no such resource: the size and modification time of their jar or directory stand in. */
+        if (compilerVersion == null) {
+            try (var in = CompilationCache.class.getResourceAsStream("/compiler.version")) {
+                if (in != null) {
+                    compilerVersion = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+                } else {
+                    Path codeSource = Paths.get(CompilationCache.class.getProtectionDomain().getCodeSource()
+                            .getLocation().toURI());
+                    compilerVersion = Files.size(codeSource) + "-" + Files.getLastModifiedTime(codeSource).toMillis();
+                }
+            } catch (Exception e) {
+                throw new IOException("could not determine the compiler version", e);
+            }
+        }
+        return compilerVersion;
+    }
+
+    /* MurmurHash3 (x64, 128 bits, seed 0) of the bytes, in hex. The key only has to tell contents apart, not to
+     * resist an adversary, and unlike a MessageDigest this needs no security provider, whose loading took most of a
+     * cache lookup. */
+    static String hash128(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+
+        var buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int blocksEnd = data.length & ~15;
+        for (int i = 0; i < blocksEnd; i += 16) {
+            h1 ^= mixK1(buffer.getLong(i), c1, c2);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(buffer.getLong(i + 8), c1, c2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // The last 1 to 15 bytes, little endian as well
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = data.length - 1; i >= blocksEnd + 8; i--) {
+            k2 = (k2 << 8) | (data[i] & 0xff);
+        }
+        for (int i = Math.min(data.length, blocksEnd + 8) - 1; i >= blocksEnd; i--) {
+            k1 = (k1 << 8) | (data[i] & 0xff);
+        }
+        if (data.length - blocksEnd > 8) {
+            h2 ^= mixK2(k2, c1, c2);
+        }
+        if (data.length > blocksEnd) {
+            h1 ^= mixK1(k1, c1, c2);
+        }
+
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = finalMix(h1);
+        h2 = finalMix(h2);
+        h1 += h2;
+        h2 += h1;
+        return toHex(h1) + toHex(h2);
+    }
+
+    private static long mixK1(long k1, long c1, long c2) {
+        return Long.rotateLeft(k1 * c1, 31) * c2;
+    }
+
+    private static long mixK2(long k2, long c1, long c2) {
+        return Long.rotateLeft(k2 * c2, 33) * c1;
+    }
+
+    private static long finalMix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    // The 16 hex digits of the bytes of the value in memory order (little endian), as the reference implementation
+    // prints a hash
+    private static String toHex(long value) {
+        String hex = Long.toHexString(Long.reverseBytes(value));
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+}
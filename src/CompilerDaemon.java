@@ -0,0 +1,163 @@
+import ast.*;
+import ast.llvm_formatting.AstLLVMFormatVisitor;
+import ast.semantic_checks.AstSemanticChecksVisitor;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class CompilerDaemon {
+    /* A long-lived compiler process. Every request is a single line holding the same arguments as the command line,
+     * e.g. "parse compile in.java out.ll", and is answered with a single line: "<OK|ERROR> <latency> ms".
+     * The JAXB context, the parser tables and the JIT-compiled lexer, parser and visitors are shared by all requests,
+     * so only the first request (or the warm-up) pays for them. */
+
+    private static final int WARMUP_ITERATIONS = 20;
+
+    private static final String WARMUP_PROGRAM = String.join("\n",
+            "class Main {",
+            "    public static void main(String[] args) {",
+            "        System.out.println(new B().run(10));",
+            "    }",
+            "}",
+            "class A {",
+            "    int size;",
+            "    int[] values;",
+            "    public int init(int n) {",
+            "        int i;",
+            "        size = n;",
+            "        values = new int[n];",
+            "        i = 0;",
+            "        while (i < n) {",
+            "            values[i] = i * 2;",
+            "            i = i + 1;",
+            "        }",
+            "        return values.length;",
+            "    }",
+            "    public int sum() {",
+            "        int i;",
+            "        int total;",
+            "        i = 0;",
+            "        total = 0;",
+            "        while (i < size && !(size < i)) {",
+            "            total = total + values[i];",
+            "            i = i + 1;",
+            "        }",
+            "        return total - 1;",
+            "    }",
+            "}",
+            "class B extends A {",
+            "    boolean ready;",
+            "    public int run(int n) {",
+            "        int dummy;",
+            "        A other;",
+            "        other = this;",
+            "        dummy = other.init(n);",
+            "        if (dummy < 1) {",
+            "            ready = false;",
+            "        } else {",
+            "            ready = true;",
+            "        }",
+            "        return this.sum();",
+            "    }",
+            "}",
+            "");
+
+    public CompilerDaemon() {
+        warmUp();
+    }
+
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        var writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), true);
+
+        writer.println("READY");
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals("quit") || line.equals("exit")) {
+                break;
+            }
+            writer.println(handle(line));
+        }
+    }
+
+    public void serve(int port) throws IOException {
+        // Only accepting local connections, one client at a time
+        try (var serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            System.out.println("Listening on " + serverSocket.getLocalSocketAddress());
+            while (true) {
+                try (Socket socket = serverSocket.accept()) {
+                    serve(socket.getInputStream(), socket.getOutputStream());
+                }
+            }
+        }
+    }
+
+    private String handle(String request) {
+        String[] args = request.split("\\s+");
+
+        long start = System.nanoTime();
+        boolean success = isWellFormed(args) && run(args);
+        long elapsed = System.nanoTime() - start;
+
+        return String.format("%s %.3f ms", success ? "OK" : "ERROR", elapsed / 1e6);
+    }
+
+    private static boolean isWellFormed(String[] args) {
+        /* <input method> <action> ... <input file> <output file>, after the leading options (which Main checks) */
+        int options = 0;
+        while (options < args.length && args[options].startsWith("--")) {
+            options++;
+        }
+        if (args.length - options < 4) {
+            System.err.println("Malformed request: " + String.join(" ", args));
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean run(String[] args) {
+        /* The compiler reports its errors (and the failed semantic checks) on System.out, which is also the response
+         * stream of the stdin mode, so System.out is sent to System.err while a request runs. Every request is then
+         * answered with exactly one line. The requests run one at a time, so the swap is not seen by another one. */
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        try {
+            return Main.run(args, false);
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    private void warmUp() {
+        /* Running the whole pipeline on a small program, so that the lexer, the parser, the visitors and the JAXB
+         * marshaller are loaded and compiled by the JIT before the first real request arrives. Like a compilation,
+         * it retains the SymbolTable while it holds ASTs. */
+        SymbolTable.retain();
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                Program prog = (Program) new Parser(new Lexer(new StringReader(WARMUP_PROGRAM))).parse().value;
+
+                new AstSemanticChecksVisitor(prog).visit(prog);
+                new AstLLVMFormatVisitor(prog).visit(prog);
+                new AstPrintVisitor().visit(prog);
+
+                var xmlSerializer = new AstXMLSerializer();
+                var xml = new ByteArrayOutputStream();
+                xmlSerializer.serialize(prog, xml);
+                xmlSerializer.deserialize(new ByteArrayInputStream(xml.toByteArray()));
+            }
+        } catch (Exception e) {
+            System.err.println("Warm-up error: " + e);
+            e.printStackTrace();
+        } finally {
+            SymbolTable.release();
+        }
+    }
+}
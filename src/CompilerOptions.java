@@ -0,0 +1,127 @@
+import ast.AstSerializer;
+import ast.AstStaxSerializer;
+import ast.AstXMLSerializer;
+
+import java.util.Arrays;
+
+public class CompilerOptions {
+    /* Options are given as "--name" or "--name=value" before the regular command line arguments, e.g.
+     *      --cache=.mjavac-cache parse compile in.java out.ll */
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    // The directory of the compilation results cache (null means no caching)
+    public String cacheDir = null;
+    public long cacheMaxBytes = 256 * MEGABYTE;
+
+    // Per-phase statistics, reported as JSON to stderr, or appended to statsFile when given
+    public boolean stats = false;
+    public String statsFile = null;
+
+    // The implementation of the XML format: "jaxb" (AstXMLSerializer) or "stax" (AstStaxSerializer)
+    public String xmlCodec = "jaxb";
+
+    // The tokens of the lexer: "lookahead" (with trailing context rules) or "plain" (see Lexer.plainTokens)
+    public String lexerMode = "lookahead";
+
+    // The parser: "cup" (the LALR Parser), "descent" (DescentParser) or "parallel" (ParallelParser)
+    public String parser = "cup";
+
+    // Whether the descent parser reads the tokens from a TokenBuffer, filled before the parse
+    public boolean tokenBuffer = false;
+    // Whether the TokenBuffer finds the lines of the tokens on demand, instead of the lexer counting them
+    public boolean lazyLines = false;
+
+    // Whether "parse marshal" writes each class to the XML as soon as it is parsed, instead of building the whole AST
+    public boolean streamXml = false;
+
+    // The remaining (non-option) command line arguments
+    public String[] args;
+
+    public static CompilerOptions parse(String[] args) {
+        CompilerOptions options = new CompilerOptions();
+
+        int i = 0;
+        while (i < args.length && args[i].startsWith("--")) {
+            String option = args[i].substring(2);
+            String name = option;
+            String value = null;
+            int separator = option.indexOf('=');
+            if (separator >= 0) {
+                name = option.substring(0, separator);
+                value = option.substring(separator + 1);
+            }
+
+            if (name.equals("cache")) {
+                options.cacheDir = value != null ? value : ".mjavac-cache";
+            } else if (name.equals("cache-size")) {
+                options.cacheMaxBytes = Long.parseLong(requireValue(name, value)) * MEGABYTE;
+            } else if (name.equals("stats")) {
+                options.stats = true;
+                options.statsFile = value;
+            } else if (name.equals("xml")) {
+                options.xmlCodec = requireValue(name, value);
+                if (!options.xmlCodec.equals("jaxb") && !options.xmlCodec.equals("stax")) {
+                    throw new IllegalArgumentException("unknown XML codec " + options.xmlCodec);
+                }
+            } else if (name.equals("lexer")) {
+                options.lexerMode = requireValue(name, value);
+                if (!options.lexerMode.equals("lookahead") && !options.lexerMode.equals("plain")) {
+                    throw new IllegalArgumentException("unknown lexer mode " + options.lexerMode);
+                }
+            } else if (name.equals("parser")) {
+                options.parser = requireValue(name, value);
+                if (!options.parser.equals("cup") && !options.parser.equals("descent")
+                        && !options.parser.equals("parallel")) {
+                    throw new IllegalArgumentException("unknown parser " + options.parser);
+                }
+            } else if (name.equals("token-buffer")) {
+                options.tokenBuffer = true;
+            } else if (name.equals("lazy-lines")) {
+                options.lazyLines = true;
+            } else if (name.equals("stream-xml")) {
+                options.streamXml = true;
+            } else {
+                throw new IllegalArgumentException("unknown option --" + name);
+            }
+            i++;
+        }
+
+        if (options.tokenBuffer && !options.parser.equals("descent")) {
+            throw new IllegalArgumentException("option --token-buffer requires --parser=descent");
+        }
+        if (options.lazyLines && !options.tokenBuffer) {
+            throw new IllegalArgumentException("option --lazy-lines requires --token-buffer");
+        }
+
+        options.args = Arrays.copyOfRange(args, i, args.length);
+        if (options.streamXml) {
+            if (options.args.length < 2 || !options.args[0].equals("parse") || !options.args[1].equals("marshal")) {
+                throw new IllegalArgumentException("option --stream-xml requires the parse marshal command");
+            }
+            if (options.parser.equals("parallel")) {
+                throw new IllegalArgumentException("option --stream-xml requires --parser=cup or --parser=descent");
+            }
+        }
+        return options;
+    }
+
+    public AstSerializer newXMLSerializer() {
+        return xmlCodec.equals("stax") ? new AstStaxSerializer() : new AstXMLSerializer();
+    }
+
+    public Lexer newLexer(SourceBuffer source) {
+        Lexer lexer = new Lexer(source);
+        if (lexerMode.equals("plain")) {
+            lexer.plainTokens();
+        }
+        return lexer;
+    }
+
+    private static String requireValue(String name, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("option --" + name + " requires a value");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,181 @@
+import ast.AstNodeCountVisitor;
+import ast.AstNode;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CompilerStats {
+    /* Per-phase instrumentation of a single command: wall time, CPU time and allocated bytes of the current thread
+     * (through the ThreadMXBean), the AST node counts and the input / output sizes.
+     * The report is a single line JSON object, so reports of many commands can be appended to the same file. */
+
+    private static class Phase {
+        final String name;
+        final long wallNanos;
+        final long cpuNanos;
+        final long allocatedBytes;
+
+        private Phase(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private final boolean enabled;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<Phase> phases = new ArrayList<>();
+
+    private String currentPhase;
+    private long startWallNanos;
+    private long startCpuNanos;
+    private long startAllocatedBytes;
+
+    private AstNodeCountVisitor nodeCounts;
+    private long inputBytes = -1;
+    private long outputBytes = -1;
+
+    public CompilerStats(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void start(String phase) {
+        if (!enabled) {
+            return;
+        }
+        currentPhase = phase;
+        startAllocatedBytes = allocatedBytes();
+        startCpuNanos = cpuNanos();
+        startWallNanos = System.nanoTime();
+    }
+
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        long wallNanos = System.nanoTime() - startWallNanos;
+        long cpuNanos = cpuNanos() - startCpuNanos;
+        long allocatedBytes = allocatedBytes() - startAllocatedBytes;
+        phases.add(new Phase(currentPhase, wallNanos, cpuNanos, allocatedBytes));
+    }
+
+    // Adds the nodes of the AST (or of a part of it, see Main.parseToXml) to the counts
+    public void countNodes(AstNode node) {
+        if (!enabled) {
+            return;
+        }
+        if (nodeCounts == null) {
+            nodeCounts = new AstNodeCountVisitor();
+        }
+        node.accept(nodeCounts);
+    }
+
+    public void setInputBytes(long inputBytes) {
+        this.inputBytes = inputBytes;
+    }
+
+    public void setOutputBytes(long outputBytes) {
+        this.outputBytes = outputBytes;
+    }
+
+    public void report(String[] command, String statsFile) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        String json = toJson(command);
+        if (statsFile == null) {
+            System.err.println(json);
+        } else {
+            try (var writer = new PrintWriter(new FileWriter(statsFile, true))) {
+                writer.println(json);
+            }
+        }
+    }
+
+    private long cpuNanos() {
+        return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private String toJson(String[] command) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"compilerVersion\":").append(quote(CompilationCache.compilerVersion()));
+
+        builder.append(",\"command\":[");
+        String sep = "";
+        for (String arg : command) {
+            builder.append(sep).append(quote(arg));
+            sep = ",";
+        }
+        builder.append("]");
+
+        builder.append(",\"phases\":[");
+        sep = "";
+        long totalWallNanos = 0;
+        long totalCpuNanos = 0;
+        long totalAllocatedBytes = 0;
+        for (Phase phase : phases) {
+            builder.append(sep);
+            builder.append("{\"name\":").append(quote(phase.name));
+            builder.append(",\"wallNanos\":").append(phase.wallNanos);
+            builder.append(",\"cpuNanos\":").append(phase.cpuNanos);
+            builder.append(",\"allocatedBytes\":").append(phase.allocatedBytes);
+            builder.append("}");
+            sep = ",";
+            totalWallNanos += phase.wallNanos;
+            totalCpuNanos += phase.cpuNanos;
+            totalAllocatedBytes += phase.allocatedBytes;
+        }
+        builder.append("]");
+        builder.append(",\"total\":{\"wallNanos\":").append(totalWallNanos);
+        builder.append(",\"cpuNanos\":").append(totalCpuNanos);
+        builder.append(",\"allocatedBytes\":").append(totalAllocatedBytes).append("}");
+
+        if (nodeCounts != null) {
+            builder.append(",\"astNodes\":{\"total\":").append(nodeCounts.getTotal());
+            builder.append(",\"byKind\":{");
+            sep = "";
+            for (Map.Entry<String, Integer> entry : nodeCounts.getCountsByKind().entrySet()) {
+                builder.append(sep).append(quote(entry.getKey())).append(":").append(entry.getValue());
+                sep = ",";
+            }
+            builder.append("}}");
+        }
+
+        builder.append(",\"inputBytes\":").append(inputBytes);
+        builder.append(",\"outputBytes\":").append(outputBytes);
+        builder.append("}");
+        return builder.toString();
+    }
+
+    private static String quote(String str) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : str.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
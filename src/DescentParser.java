@@ -0,0 +1,714 @@
+import ast.*;
+import java_cup.runtime.Symbol;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DescentParser {
+    /* A hand written alternative to the CUP generated Parser (selected with --parser=descent): recursive descent for
+     * the declarations and statements, and precedence climbing (Pratt parsing) for the expressions, following the
+     * precedence declarations of Parser.cup. It builds the very same AST: the lists are ArrayLists, and the line
+     * numbers are taken from the lexer at the same points where the LALR parser reduces (when the token after the
+     * declaration has been scanned). It never scans further than the LALR parser does, so the first syntax error is
+     * reported at the same token, with the same message. It then recovers in panic mode at the same ";" and "}" as
+     * the error productions of Parser.cup, and raises the same Parser.SyntaxError at the end of the parse. The
+     * errors after the first one may still differ: when the tokens right after a recovery do not parse, CUP keeps
+     * skipping in the frame of the first error, where this parser recovers again in the frame of the second one. */
+
+    /* The binding powers of the binary operators (0 for the other tokens), from Parser.cup. The prefix "!" binds
+     * tighter than all of them, and the postfix array access, length and method call tighter still. */
+    private static final int[] BINARY_PRECEDENCE = new int[sym.terminalNames.length];
+    static {
+        BINARY_PRECEDENCE[sym.AND] = 1;
+        BINARY_PRECEDENCE[sym.LT] = 2;
+        BINARY_PRECEDENCE[sym.ADD] = 3;
+        BINARY_PRECEDENCE[sym.SUB] = 3;
+        BINARY_PRECEDENCE[sym.MULT] = 4;
+    }
+
+    // The tokens come either from a lexer, or from a TokenBuffer (and then the other one is null)
+    private final Lexer lexer;
+    private final TokenBuffer tokens;
+    private final boolean exitOnError;
+    // Whether syntax errors are printed (the parsers of regions are quiet, and fall back on a failure)
+    boolean reportErrors = true;
+    // When set, the declarations are handed to the sink as they are parsed, as in the LALR parser (see Parser.sink)
+    ProgramSink sink = null;
+
+    // Every syntax error found so far, see Parser.diagnostics
+    private final List<Parser.Diagnostic> diagnostics = new ArrayList<>();
+
+    /* Thrown at a syntax error up to the innermost declaration or statement that recovers from it, which skips the
+     * tokens up to its end. A single instance, with no stack trace. */
+    private static final class Recovery extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Recovery() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Recovery RECOVERY = new Recovery();
+
+    // The number of tokens scanned since the last error or recovery (see Parser.ERROR_SYNC_SIZE)
+    private int sinceError = Parser.ERROR_SYNC_SIZE;
+
+    // The kind of the next token, which the LALR parser would have as its lookahead
+    private int kind;
+    // The next token itself: from the lexer, or the index of the token in tokens
+    private Symbol token;
+    private int index = -1;
+    // The tokens after the region of tokens that is parsed are taken as the EOF
+    private int end;
+
+    public DescentParser(Lexer lexer, boolean exitOnError) {
+        this.lexer = lexer;
+        this.tokens = null;
+        this.exitOnError = exitOnError;
+    }
+
+    /* Parses the tokens from the start of the buffer, with no allocation per token (the values of the IDs and NUMBERs
+     * are taken from its chars) */
+    public DescentParser(TokenBuffer tokens, boolean exitOnError) {
+        this(tokens, 0, tokens.size, exitOnError);
+    }
+
+    /* Parses the tokens [from, to) of the buffer, a region of its source, followed by the EOF. The line of the EOF is
+     * the line of the token at to, as in the whole source. */
+    public DescentParser(TokenBuffer tokens, int from, int to, boolean exitOnError) {
+        this.lexer = null;
+        this.tokens = tokens;
+        this.exitOnError = exitOnError;
+        index = from - 1;
+        end = to;
+    }
+
+    public Program parse() {
+        try {
+            advance();
+            MainClass mainClass = mainClass();
+            if (sink != null) {
+                sink.mainClass(mainClass);
+            }
+            List<ClassDecl> classDecls = new ArrayList<>();
+            while (kind == sym.CLASS) {
+                ClassDecl classDecl = classDecl();
+                if (sink == null) {
+                    classDecls.add(classDecl);
+                } else if (diagnostics.isEmpty()) {
+                    // (after an error, the output is discarded anyway)
+                    sink.classDecl(classDecl);
+                }
+            }
+            expect(sym.EOF);
+            return checked(new Program(mainClass, classDecls));
+        } catch (Recovery e) {
+            // An error outside of the declarations and statements that recover, see Parser.unrecovered_syntax_error
+            throw failOnSyntaxErrors();
+        }
+    }
+
+    /* Parse a source that holds a single declaration, a region of a larger source (see IncrementalParser and
+     * ParallelParser) */
+
+    public MainClass parseMainClass() {
+        try {
+            advance();
+            MainClass mainClass = mainClass();
+            expect(sym.EOF);
+            return checked(mainClass);
+        } catch (Recovery e) {
+            throw failOnSyntaxErrors();
+        }
+    }
+
+    public ClassDecl parseClassDecl() {
+        try {
+            advance();
+            ClassDecl classDecl = classDecl();
+            expect(sym.EOF);
+            return checked(classDecl);
+        } catch (Recovery e) {
+            throw failOnSyntaxErrors();
+        }
+    }
+
+    public MethodDecl parseMethodDecl() {
+        try {
+            advance();
+            MethodDecl methodDecl = methodDecl();
+            expect(sym.EOF);
+            return checked(methodDecl);
+        } catch (Recovery e) {
+            throw failOnSyntaxErrors();
+        }
+    }
+
+    // The result of a parse, unless it recovered from errors (and then its AST has holes where they were)
+    private <T> T checked(T result) {
+        if (!diagnostics.isEmpty()) {
+            throw failOnSyntaxErrors();
+        }
+        return result;
+    }
+
+    /***************/
+    /* The tokens  */
+    /***************/
+
+    private void advance() {
+        next();
+        // An illegal character is scanned as the error terminal: it is reported and skipped, as in the LALR parser
+        while (kind == sym.error) {
+            reportSyntaxError();
+            next();
+        }
+    }
+
+    private void next() {
+        sinceError++;
+        if (tokens != null) {
+            kind = ++index < end ? tokens.kinds[index] : sym.EOF;
+            return;
+        }
+        try {
+            token = lexer.next_token();
+            kind = token.sym;
+        } catch (java.lang.Error e) {
+            // A lexical error
+            reportSyntaxError();
+            throw failOnSyntaxErrors();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void expect(int terminal) {
+        if (kind != terminal) {
+            syntaxError();
+        }
+        if (terminal != sym.EOF) {
+            advance();
+        }
+    }
+
+    private Identifier expectId() {
+        if (kind != sym.ID) {
+            syntaxError();
+        }
+        Identifier id = tokens != null ? tokens.identifier(index) : (Identifier) token.value;
+        advance();
+        return id;
+    }
+
+    // Reports an error at the next token, and unwinds to the innermost declaration or statement that recovers from it
+    private void syntaxError() {
+        reportSyntaxError();
+        throw RECOVERY;
+    }
+
+    /* Records an error at the next token, and prints it. The quiet parsers of regions stop at the first one instead.
+     * An error right after another one or a recovery is taken as a cascade of it, and not reported, as in Parser. */
+    private void reportSyntaxError() {
+        boolean cascade = sinceError < Parser.ERROR_SYNC_SIZE;
+        sinceError = 0;
+        if (cascade) {
+            return;
+        }
+        int column = tokens != null ? tokens.column(index) : lexer.getCharPos();
+        var diagnostic = new Parser.Diagnostic(line(), column + 1);
+        diagnostics.add(diagnostic);
+        if (!reportErrors) {
+            throw failOnSyntaxErrors();
+        }
+        System.err.print(diagnostic.message + "\n");
+    }
+
+    // Ends the parse: terminates the JVM, or returns the error with all the diagnostics, to be thrown
+    private Parser.SyntaxError failOnSyntaxErrors() {
+        if (exitOnError) {
+            System.exit(1);
+        }
+        return new Parser.SyntaxError(diagnostics);
+    }
+
+    /* Panic mode: skips the tokens up to the given one, and that one too. An error with no such token before the end
+     * of the input is not recovered from. */
+    private void skipPast(int terminal) {
+        while (kind != terminal) {
+            if (kind == sym.EOF) {
+                throw failOnSyntaxErrors();
+            }
+            advance();
+        }
+        sinceError = 0;
+        advance();
+    }
+
+    /* Panic mode of the classes and methods: skips to the next "{", which is left as the next token (and returns
+     * true), or past the next "}" */
+    private boolean skipToBody() {
+        while (kind != sym.LCURLY && kind != sym.RCURLY) {
+            if (kind == sym.EOF) {
+                throw failOnSyntaxErrors();
+            }
+            advance();
+        }
+        sinceError = 0;
+        if (kind == sym.LCURLY) {
+            return true;
+        }
+        advance();
+        return false;
+    }
+
+    // The line of the next token, which is where the LALR parser reduces
+    private int line() {
+        return tokens != null ? tokens.line(index) : lexer.getLine();
+    }
+
+    // The names that the plain tokens mode scans as IDs, see Parser.requireName
+    private void requireName(Identifier name, String expected) {
+        if (!name.name.equals(expected)) {
+            syntaxError();
+        }
+    }
+
+    /*********************/
+    /* The declarations  */
+    /*********************/
+
+    private MainClass mainClass() {
+        expect(sym.CLASS);
+        Identifier name = expectId();
+        expect(sym.LCURLY);
+        expect(sym.PUBLIC);
+        expect(sym.STATIC);
+        expect(sym.VOID);
+        expect(sym.MAIN_METHOD);
+        expect(sym.LPAREN);
+        if (kind == sym.ID) {
+            // "String[]" in plain tokens
+            Identifier stringType = expectId();
+            expect(sym.LBRACKET);
+            expect(sym.RBRACKET);
+            requireName(stringType, "String");
+        } else {
+            expect(sym.STRING_ARRAY_TYPE);
+        }
+        Identifier argsName = expectId();
+        expect(sym.RPAREN);
+        expect(sym.LCURLY);
+        Statement mainStatement = statement();
+        expect(sym.RCURLY);
+        expect(sym.RCURLY);
+        return new MainClass(name, argsName.name, mainStatement);
+    }
+
+    private ClassDecl classDecl() {
+        try {
+            expect(sym.CLASS);
+            Identifier name = expectId();
+            Identifier superName = null;
+            if (kind == sym.EXTENDS) {
+                advance();
+                superName = expectId();
+            }
+            return classBody(name, superName);
+        } catch (Recovery e) {
+            /* Panic mode, as in Parser.cup: skipping to the body of the class, which is still parsed, or to its end.
+             * The ASTs of erroneous parses are never returned, so nothing is built. */
+            while (skipToBody()) {
+                try {
+                    classBody(null, null);
+                    return null;
+                } catch (Recovery again) {
+                    // Skipping again
+                }
+            }
+            return null;
+        }
+    }
+
+    private ClassDecl classBody(Identifier name, Identifier superName) {
+        expect(sym.LCURLY);
+
+        List<VarDecl> fields = new ArrayList<>();
+        while (kind != sym.PUBLIC && kind != sym.RCURLY) {
+            fields.add(field());
+        }
+        List<MethodDecl> methods = new ArrayList<>();
+        while (kind == sym.PUBLIC) {
+            methods.add(methodDecl());
+        }
+
+        expect(sym.RCURLY);
+        if (name == null) {
+            // The body of a class whose header had an error
+            return null;
+        }
+        return new ClassDecl(name, superName, fields, methods);
+    }
+
+    // The fields recover from an error at their start too, see fieldsList in Parser.cup
+    private VarDecl field() {
+        try {
+            return varDecl(type());
+        } catch (Recovery e) {
+            skipPast(sym.SEMICOLON);
+            return null;
+        }
+    }
+
+    private static boolean startsType(int terminal) {
+        return terminal == sym.INT_TYPE || terminal == sym.BOOL_TYPE || terminal == sym.INT_ARRAY_TYPE
+                || terminal == sym.ID;
+    }
+
+    private AstType type() {
+        switch (kind) {
+            case sym.INT_TYPE:
+                advance();
+                if (kind == sym.LBRACKET) {
+                    // "int[]" in plain tokens
+                    advance();
+                    expect(sym.RBRACKET);
+                    return new IntArrayAstType();
+                }
+                return new IntAstType();
+            case sym.BOOL_TYPE:
+                advance();
+                return new BoolAstType();
+            case sym.INT_ARRAY_TYPE:
+                advance();
+                return new IntArrayAstType();
+            default:
+                return new RefType(expectId());
+        }
+    }
+
+    private VarDecl varDecl(AstType type) {
+        try {
+            Identifier name = expectId();
+            expect(sym.SEMICOLON);
+            return new VarDecl(type, name, line());
+        } catch (Recovery e) {
+            // Panic mode: skipping to the end of the declaration
+            skipPast(sym.SEMICOLON);
+            return null;
+        }
+    }
+
+    private FormalArg formal() {
+        AstType type = type();
+        Identifier name = expectId();
+        return new FormalArg(type, name, line());
+    }
+
+    private MethodDecl methodDecl() {
+        try {
+            expect(sym.PUBLIC);
+            AstType returnType = type();
+            Identifier name = expectId();
+
+            expect(sym.LPAREN);
+            List<FormalArg> formals = new ArrayList<>();
+            if (startsType(kind)) {
+                formals.add(formal());
+                while (kind == sym.COMMA) {
+                    advance();
+                    formals.add(formal());
+                }
+            }
+            expect(sym.RPAREN);
+            return methodBody(returnType, name, formals);
+        } catch (Recovery e) {
+            /* Panic mode, as in Parser.cup: an error in the header skips to the body, which is still parsed, and the
+             * other errors of the method, outside of its statements, to its end */
+            while (skipToBody()) {
+                try {
+                    methodBody(null, null, null);
+                    return null;
+                } catch (Recovery again) {
+                    // Skipping again
+                }
+            }
+            return null;
+        }
+    }
+
+    private MethodDecl methodBody(AstType returnType, Identifier name, List<FormalArg> formals) {
+        expect(sym.LCURLY);
+
+        /* The local variables and then the statements. An ID starts either a variable of a class type or an
+         * assignment, which only the token after it tells apart (as in the LALR parser, which shifts the ID first) */
+        List<VarDecl> vardecls = new ArrayList<>();
+        List<Statement> body = new ArrayList<>();
+        while (startsType(kind)) {
+            if (kind != sym.ID) {
+                vardecls.add(varDecl(type()));
+                continue;
+            }
+            Identifier id = expectId();
+            if (kind == sym.ID) {
+                vardecls.add(varDecl(new RefType(id)));
+            } else {
+                try {
+                    body.add(assignment(id));
+                } catch (Recovery e) {
+                    body.add(skipStatement());
+                }
+                break;
+            }
+        }
+        statements(body);
+
+        Expr ret = returnExpr();
+        expect(sym.RCURLY);
+        if (returnType == null) {
+            // The body of a method whose header had an error
+            return null;
+        }
+        return new MethodDecl(returnType, name, formals, vardecls, body, ret, line());
+    }
+
+    private Expr returnExpr() {
+        expect(sym.RETURN);
+        try {
+            Expr ret = expression();
+            expect(sym.SEMICOLON);
+            return ret;
+        } catch (Recovery e) {
+            // Panic mode: skipping to the end of the return statement
+            skipPast(sym.SEMICOLON);
+            return null;
+        }
+    }
+
+    /*******************/
+    /* The statements  */
+    /*******************/
+
+    private void statements(List<Statement> statements) {
+        while (kind == sym.LCURLY || kind == sym.IF || kind == sym.WHILE || kind == sym.SYSOUT
+                || kind == sym.ID) {
+            statements.add(statement());
+        }
+    }
+
+    private Statement statement() {
+        try {
+            return statementOrError();
+        } catch (Recovery e) {
+            return skipStatement();
+        }
+    }
+
+    // Panic mode: skipping to the end of the statement
+    private Statement skipStatement() {
+        skipPast(sym.SEMICOLON);
+        return null;
+    }
+
+    private Statement statementOrError() {
+        switch (kind) {
+            case sym.LCURLY: {
+                advance();
+                List<Statement> statements = new ArrayList<>();
+                statements(statements);
+                expect(sym.RCURLY);
+                return new BlockStatement(statements);
+            }
+            case sym.IF: {
+                advance();
+                expect(sym.LPAREN);
+                Expr cond = expression();
+                expect(sym.RPAREN);
+                Statement thenCase = statement();
+                expect(sym.ELSE);
+                Statement elseCase = statement();
+                return new IfStatement(cond, thenCase, elseCase);
+            }
+            case sym.WHILE: {
+                advance();
+                expect(sym.LPAREN);
+                Expr cond = expression();
+                expect(sym.RPAREN);
+                return new WhileStatement(cond, statement());
+            }
+            case sym.SYSOUT: {
+                advance();
+                expect(sym.LPAREN);
+                Expr arg = expression();
+                expect(sym.RPAREN);
+                expect(sym.SEMICOLON);
+                return new SysoutStatement(arg);
+            }
+            default:
+                return assignment(expectId());
+        }
+    }
+
+    // The rest of an assignment to lv, whose ID was already consumed
+    private Statement assignment(Identifier lv) {
+        if (kind == sym.LBRACKET) {
+            advance();
+            Expr index = expression();
+            expect(sym.RBRACKET);
+            expect(sym.ASSIGN);
+            Expr rv = expression();
+            expect(sym.SEMICOLON);
+            return new AssignArrayStatement(lv, index, rv);
+        }
+        expect(sym.ASSIGN);
+        Expr rv = expression();
+        expect(sym.SEMICOLON);
+        return new AssignStatement(lv, rv);
+    }
+
+    /********************/
+    /* The expressions  */
+    /********************/
+
+    private Expr expression() {
+        return binary(1);
+    }
+
+    // An expression of binary operators that bind at least as tightly as minPrecedence (all left associative)
+    private Expr binary(int minPrecedence) {
+        Expr e = unary();
+        int precedence;
+        while ((precedence = BINARY_PRECEDENCE[kind]) >= minPrecedence) {
+            int operator = kind;
+            advance();
+            Expr e2 = binary(precedence + 1);
+            switch (operator) {
+                case sym.AND:
+                    e = new AndExpr(e, e2);
+                    break;
+                case sym.LT:
+                    e = new LtExpr(e, e2);
+                    break;
+                case sym.ADD:
+                    e = new AddExpr(e, e2);
+                    break;
+                case sym.SUB:
+                    e = new SubtractExpr(e, e2);
+                    break;
+                default:
+                    e = new MultExpr(e, e2);
+                    break;
+            }
+        }
+        return e;
+    }
+
+    private Expr unary() {
+        if (kind == sym.NOT) {
+            advance();
+            return new NotExpr(unary());
+        }
+        return postfix(primary());
+    }
+
+    private Expr primary() {
+        switch (kind) {
+            case sym.TRUE:
+                advance();
+                return new TrueExpr();
+            case sym.FALSE:
+                advance();
+                return new FalseExpr();
+            case sym.NUMBER: {
+                int num = tokens != null ? tokens.number(index) : (Integer) token.value;
+                advance();
+                return new IntegerLiteralExpr(num);
+            }
+            case sym.THIS:
+                advance();
+                return new ThisExpr();
+            case sym.NEW: {
+                advance();
+                if (kind == sym.INT_TYPE) {
+                    // "new int[e]" in plain tokens
+                    advance();
+                    return newIntArray();
+                }
+                Identifier classId = expectId();
+                expect(sym.LPAREN);
+                expect(sym.RPAREN);
+                return new NewObjectExpr(classId);
+            }
+            case sym.NEW_ARRAY:
+                advance();
+                return newIntArray();
+            case sym.LPAREN: {
+                advance();
+                Expr e = expression();
+                expect(sym.RPAREN);
+                return e;
+            }
+            default:
+                return new IdentifierExpr(expectId());
+        }
+    }
+
+    private Expr newIntArray() {
+        expect(sym.LBRACKET);
+        Expr lengthExpr = expression();
+        expect(sym.RBRACKET);
+        return new NewIntArrayExpr(lengthExpr);
+    }
+
+    private Expr postfix(Expr e) {
+        while (true) {
+            switch (kind) {
+                case sym.LBRACKET: {
+                    advance();
+                    Expr indexExpr = expression();
+                    expect(sym.RBRACKET);
+                    e = new ArrayAccessExpr(e, indexExpr);
+                    break;
+                }
+                case sym.ARRAY_LEN:
+                    advance();
+                    e = new ArrayLengthExpr(e);
+                    break;
+                case sym.METHOD_CALL:
+                    advance();
+                    e = methodCall(e, expectId());
+                    break;
+                case sym.DOT: {
+                    // In plain tokens, "e.id" is an array length unless a "(" follows the id
+                    advance();
+                    Identifier id = expectId();
+                    if (kind == sym.LPAREN) {
+                        e = methodCall(e, id);
+                    } else {
+                        requireName(id, "length");
+                        e = new ArrayLengthExpr(e);
+                    }
+                    break;
+                }
+                default:
+                    return e;
+            }
+        }
+    }
+
+    private Expr methodCall(Expr ownerExpr, Identifier methodId) {
+        expect(sym.LPAREN);
+        List<Expr> actuals = new ArrayList<>();
+        if (kind != sym.RPAREN) {
+            actuals.add(expression());
+            while (kind == sym.COMMA) {
+                advance();
+                actuals.add(expression());
+            }
+        }
+        expect(sym.RPAREN);
+        return new MethodCallExpr(ownerExpr, methodId, actuals);
+    }
+}
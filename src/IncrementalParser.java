@@ -0,0 +1,308 @@
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+public class IncrementalParser implements AutoCloseable {
+    /* Keeps the AST of a source up to date under small edits, for the editors that resubmit the source after every
+     * keystroke. The tokens of the source are kept in a TokenBuffer, which an edit lexes again only around the edit
+     * (see TokenBuffer.edit), and the regions of the top-level declarations (their source offsets and lines) are
+     * found among them. An edit inside the text of a method then re-parses the tokens of that method only, and an
+     * edit inside a class but in none of its methods those of that class only: the new subtree replaces the old one in
+     * the lists of the AST, which is updated in place, and the regions and line numbers after it are shifted by the
+     * chars and lines that the edit added or removed. Any other edit (e.g. of the main class, or between the
+     * classes), or an edit after which the region no longer parses as a single declaration of its kind (e.g. it
+     * removed a "}"), falls back to parsing all of the tokens again.
+     *
+     * Replacing the text of a declaration with another text of the same kind of declaration gives the same AST as a
+     * full parse would, as the grammar is context free and no token of the region looks past its closing "}". The
+     * one exception is the line number of a method, which is the line of the token after it (see DescentParser) and
+     * so is recorded with the region of the method.
+     *
+     * The AST carries the symbols of its names across the edits, so the parser retains the SymbolTable until it is
+     * closed. */
+
+    private static class Region {
+        // The offsets [start, end) of the declaration in the source, from its first token to its closing "}"
+        int start;
+        int end;
+        // The lines of its first token and of its closing "}"
+        int line;
+        int endLine;
+        // The line of the token after it, which is the line number of a method
+        int nextTokenLine;
+        // The regions of the methods of a class (none for the main class)
+        List<Region> methods = new ArrayList<>();
+
+        Region(int start, int line) {
+            this.start = start;
+            this.line = line;
+        }
+
+        void shift(int charDelta, int lineDelta) {
+            start += charDelta;
+            end += charDelta;
+            line += lineDelta;
+            endLine += lineDelta;
+            nextTokenLine += lineDelta;
+        }
+    }
+
+    // The text of the source is its first sourceLength chars, which an edit changes in place (see replace)
+    private char[] chars;
+    private int sourceLength;
+    private final TokenBuffer tokens;
+    // Null when the last parse of the source failed, so the next edit parses all of it
+    private Program program;
+    // The regions of the main class and then of the classes, in the order of the source (and of the AST)
+    private List<Region> classes;
+    private boolean closed = false;
+
+    /* Takes the program parsed from the source (by either parser, with line numbers) */
+    public IncrementalParser(Program program, String source) {
+        chars = new char[source.length() + 1];
+        source.getChars(0, source.length(), chars, 0);
+        sourceLength = source.length();
+        tokens = TokenBuffer.scan(SourceBuffer.wrap(chars, sourceLength), false, false);
+        this.program = program;
+        this.classes = scanRegions(0, tokens.size, true);
+
+        boolean matches = classes.size() == program.classDecls().size() + 1;
+        for (int c = 1; matches && c < classes.size(); c++) {
+            matches = classes.get(c).methods.size() == program.classDecls().get(c - 1).methoddecls().size();
+        }
+        if (!matches) {
+            throw new IllegalArgumentException("the program is not the AST of the source");
+        }
+        SymbolTable.retain();
+    }
+
+    public Program program() {
+        return program;
+    }
+
+    public String source() {
+        return new String(chars, 0, sourceLength);
+    }
+
+    // Releases the SymbolTable: the AST is not valid anymore once the table is cleared
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            SymbolTable.release();
+        }
+    }
+
+    /* Replaces the length chars at offset with text, and returns the AST of the edited source: the same Program,
+     * updated in place, unless the whole source had to be parsed again. Throws Parser.SyntaxError (after printing
+     * the errors) when the edited source does not parse. */
+    public Program edit(int offset, int length, String text) {
+        if (closed) {
+            throw new IllegalStateException("the incremental parser is closed");
+        }
+        if (offset < 0 || length < 0 || offset + length > sourceLength) {
+            throw new IndexOutOfBoundsException("edit [" + offset + ", " + (offset + length) + ") of a source of "
+                    + sourceLength + " chars");
+        }
+        replace(offset, length, text);
+        tokens.edit(SourceBuffer.wrap(chars, sourceLength), offset, length, text.length());
+        int charDelta = text.length() - length;
+
+        if (program != null) {
+            // The main class has no line numbers to shift, but is not worth a region of its own either
+            for (int c = 1; c < classes.size(); c++) {
+                Region classRegion = classes.get(c);
+                if (!contains(classRegion, offset, offset + length)) {
+                    continue;
+                }
+                for (int m = 0; m < classRegion.methods.size(); m++) {
+                    if (contains(classRegion.methods.get(m), offset, offset + length)) {
+                        if (reparseMethod(c, m, charDelta)) {
+                            return program;
+                        }
+                        break;
+                    }
+                }
+                if (reparseClass(c, charDelta)) {
+                    return program;
+                }
+                break;
+            }
+        }
+        return parseAll();
+    }
+
+    private static boolean contains(Region region, int start, int end) {
+        // An edit that leaves both the first token and the closing "}" of the region in place
+        return region.start < start && end < region.end;
+    }
+
+    private boolean reparseMethod(int classIndex, int methodIndex, int charDelta) {
+        Region classRegion = classes.get(classIndex);
+        Region region = classRegion.methods.get(methodIndex);
+        int end = region.end + charDelta;
+        int from = token(region.start, sym.PUBLIC);
+        int to = token(end - 1, sym.RCURLY) + 1;
+        MethodDecl methodDecl = from < 0 || to == 0 ? null : parseQuietly(from, to, DescentParser::parseMethodDecl);
+        if (methodDecl == null) {
+            return false;
+        }
+
+        int lineDelta = tokens.line(to - 1) - region.endLine;
+        region.end = end;
+        region.endLine += lineDelta;
+        region.nextTokenLine = tokens.line(to);
+        methodDecl.lineNumber = region.nextTokenLine;
+        program.classDecls().get(classIndex - 1).methoddecls().set(methodIndex, methodDecl);
+
+        classRegion.end += charDelta;
+        classRegion.endLine += lineDelta;
+        classRegion.nextTokenLine += lineDelta;
+        shiftMethods(classIndex, methodIndex + 1, charDelta, lineDelta);
+        shiftClasses(classIndex + 1, charDelta, lineDelta);
+        return true;
+    }
+
+    private boolean reparseClass(int classIndex, int charDelta) {
+        Region region = classes.get(classIndex);
+        int end = region.end + charDelta;
+        int from = token(region.start, sym.CLASS);
+        int to = token(end - 1, sym.RCURLY) + 1;
+        ClassDecl classDecl = from < 0 || to == 0 ? null : parseQuietly(from, to, DescentParser::parseClassDecl);
+        if (classDecl == null) {
+            return false;
+        }
+
+        int lineDelta = tokens.line(to - 1) - region.endLine;
+        classes.set(classIndex, scanRegions(from, to, false).get(0));
+        program.classDecls().set(classIndex - 1, classDecl);
+
+        shiftClasses(classIndex + 1, charDelta, lineDelta);
+        return true;
+    }
+
+    private Program parseAll() {
+        program = null;
+        program = new DescentParser(tokens, false).parse();
+        classes = scanRegions(0, tokens.size, true);
+        return program;
+    }
+
+    /* Replaces the removed chars at offset with text. The tokens share the chars, and are edited right after. */
+    private void replace(int offset, int removed, String text) {
+        int newLength = sourceLength - removed + text.length();
+        // (with the extra char of a SourceBuffer)
+        if (newLength >= chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(newLength + 1, 2 * chars.length));
+        }
+        System.arraycopy(chars, offset + removed, chars, offset + text.length(), sourceLength - offset - removed);
+        text.getChars(0, text.length(), chars, offset);
+        sourceLength = newLength;
+    }
+
+    /******************************/
+    /* Shifting the later regions */
+    /******************************/
+
+    private void shiftClasses(int fromClass, int charDelta, int lineDelta) {
+        for (int c = fromClass; c < classes.size(); c++) {
+            classes.get(c).shift(charDelta, lineDelta);
+            if (lineDelta != 0) {
+                for (VarDecl field : program.classDecls().get(c - 1).fields()) {
+                    field.lineNumber += lineDelta;
+                }
+            }
+            shiftMethods(c, 0, charDelta, lineDelta);
+        }
+    }
+
+    private void shiftMethods(int classIndex, int fromMethod, int charDelta, int lineDelta) {
+        List<Region> regions = classes.get(classIndex).methods;
+        List<MethodDecl> methodDecls = program.classDecls().get(classIndex - 1).methoddecls();
+        for (int m = fromMethod; m < regions.size(); m++) {
+            regions.get(m).shift(charDelta, lineDelta);
+            if (lineDelta == 0) {
+                continue;
+            }
+            // The parsers give line numbers to the methods, their formals and their variables only
+            MethodDecl methodDecl = methodDecls.get(m);
+            methodDecl.lineNumber += lineDelta;
+            for (FormalArg formal : methodDecl.formals()) {
+                formal.lineNumber += lineDelta;
+            }
+            for (VarDecl varDecl : methodDecl.vardecls()) {
+                varDecl.lineNumber += lineDelta;
+            }
+        }
+    }
+
+    /***************/
+    /* The regions */
+    /***************/
+
+    /* The index of the token of the given kind that starts at offset, or -1 when no such token does (e.g. when an
+     * edit before it opened a comment) */
+    private int token(int offset, int kind) {
+        int index = Arrays.binarySearch(tokens.starts, 0, tokens.size, offset);
+        return index >= 0 && tokens.kinds[index] == kind ? index : -1;
+    }
+
+    private <T> T parseQuietly(int from, int to, Function<DescentParser, T> parse) {
+        var parser = new DescentParser(tokens, from, to, false);
+        parser.reportErrors = false;
+        try {
+            return parse.apply(parser);
+        } catch (RuntimeException e) {
+            // Not a single declaration (or not a valid one), which the full parse then reports
+            return null;
+        }
+    }
+
+    /* The regions of the classes among the tokens [from, to). Only the kinds of the tokens are read, matching the
+     * curly brackets: a class starts at a "class" outside of all brackets, and a method at a "public" directly inside
+     * the brackets of a class other than the main class. */
+    private List<Region> scanRegions(int from, int to, boolean firstIsMain) {
+        List<Region> classes = new ArrayList<>();
+        Region classRegion = null;
+        Region methodRegion = null;
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            switch (tokens.kinds[i]) {
+                case sym.CLASS:
+                    if (depth == 0) {
+                        classRegion = new Region(tokens.starts[i], tokens.line(i));
+                        classes.add(classRegion);
+                    }
+                    break;
+                case sym.PUBLIC:
+                    if (depth == 1 && !(firstIsMain && classes.size() == 1)) {
+                        methodRegion = new Region(tokens.starts[i], tokens.line(i));
+                        classRegion.methods.add(methodRegion);
+                    }
+                    break;
+                case sym.LCURLY:
+                    depth++;
+                    break;
+                case sym.RCURLY:
+                    depth--;
+                    Region ended = depth == 1 ? methodRegion : depth == 0 ? classRegion : null;
+                    if (ended != null) {
+                        ended.end = tokens.starts[i] + 1;
+                        ended.endLine = tokens.line(i);
+                        // A "}" is never the last token, which is the EOF
+                        ended.nextTokenLine = tokens.line(i + 1);
+                    }
+                    if (depth == 1) {
+                        methodRegion = null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+public class LineTable {
+    /* The offsets at which the lines of a source start, built in one pass over its chars, from which the line and the
+     * column of any offset are found by a binary search: the lazy lines mode of TokenBuffer, whose lexer (OffsetLexer)
+     * then counts neither. The lines end as JFlex ends them for %line: at "\r\n", or at any one of "\n", "\r",
+     * "\u000B", "\f", "\u0085", "\u2028" and "\u2029", and the columns count the chars since the start of the line. */
+
+    // starts[i] is the offset of line i + 1 (so starts[0] = 0)
+    private int[] starts;
+    private int size;
+    // The index of the line that was found last
+    private int lastLine = 0;
+
+    private LineTable(int[] starts, int size) {
+        this.starts = starts;
+        this.size = size;
+    }
+
+    public static LineTable of(char[] chars, int length) {
+        var table = new LineTable(new int[64], 1);
+        for (int offset = 1; offset <= length; offset++) {
+            if (startsLine(chars, length, offset)) {
+                table.add(offset);
+            }
+        }
+        return table;
+    }
+
+    public static boolean isLineTerminator(char c) {
+        // "\n", "\u000B", "\f" and "\r", or one of the three others
+        return c <= '\r' ? c >= '\n' : c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean startsLine(char[] chars, int length, int offset) {
+        char previous = chars[offset - 1];
+        return isLineTerminator(previous) && !(previous == '\r' && offset < length && chars[offset] == '\n');
+    }
+
+    public int lines() {
+        return size;
+    }
+
+    // The line (from 1) of the offset, as Lexer.getLine reports it
+    public int line(int offset) {
+        // The offsets are mostly asked for in order (e.g. by a parser), so the last line found and the next one first
+        int last = lastLine;
+        if (starts[last] <= offset && (last + 1 == size || offset < starts[last + 1])) {
+            return last + 1;
+        }
+        if (last + 1 < size && starts[last + 1] <= offset && (last + 2 == size || offset < starts[last + 2])) {
+            lastLine = last + 1;
+            return last + 2;
+        }
+        int line = Arrays.binarySearch(starts, 0, size, offset);
+        line = line >= 0 ? line + 1 : -line - 1;
+        lastLine = line - 1;
+        return line;
+    }
+
+    // The column (from 0) of the offset, as Lexer.getCharPos reports it
+    public int column(int offset) {
+        return offset - starts[line(offset) - 1];
+    }
+
+    /* Updates the table for the edited chars, in which the removed chars at offset were replaced with the inserted
+     * ones. Whether a line starts at an offset depends on the two chars before and at it, so only the starts in
+     * [offset, offset + inserted] are looked for again, and the ones after them are shifted. */
+    public void edit(char[] chars, int length, int offset, int removed, int inserted) {
+        // The old starts in [offset, offset + removed] are replaced, and the first line always starts at 0
+        int from = Arrays.binarySearch(starts, 0, size, offset);
+        from = Math.max(1, from >= 0 ? from : -from - 1);
+        int to = Arrays.binarySearch(starts, 0, size, offset + removed + 1);
+        to = to >= 0 ? to : -to - 1;
+
+        int[] added = new int[Math.min(inserted + 1, 16)];
+        int addedSize = 0;
+        for (int start = Math.max(offset, 1); start <= Math.min(offset + inserted, length); start++) {
+            if (startsLine(chars, length, start)) {
+                if (addedSize == added.length) {
+                    added = Arrays.copyOf(added, 2 * addedSize);
+                }
+                added[addedSize++] = start;
+            }
+        }
+
+        int tail = size - to;
+        if (from + addedSize + tail > starts.length) {
+            starts = Arrays.copyOf(starts, 2 * (from + addedSize + tail));
+        }
+        System.arraycopy(starts, to, starts, from + addedSize, tail);
+        for (int i = from + addedSize; i < from + addedSize + tail; i++) {
+            starts[i] += inserted - removed;
+        }
+        System.arraycopy(added, 0, starts, from, addedSize);
+        size = from + addedSize + tail;
+        lastLine = 0;
+    }
+
+    private void add(int start) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * size);
+        }
+        starts[size++] = start;
+    }
+}
@@ -3,84 +3,366 @@ import ast.llvm_formatting.AstLLVMFormatVisitor;
 import ast.semantic_checks.AstSemanticChecksVisitor;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("batch")) {
+            // batch <manifest> | batch <action> <input dir> <output dir> - compile many files in parallel
+            try {
+                new BatchCompiler().run(args);
+            } catch (Exception e) {
+                System.out.println("Batch error: " + e);
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("daemon")) {
+            // daemon [port] - serve compilation requests from stdin (or a local socket) in a single JVM
+            try {
+                var daemon = new CompilerDaemon();
+                if (args.length > 1) {
+                    daemon.serve(Integer.parseInt(args[1]));
+                } else {
+                    daemon.serve(System.in, System.out);
+                }
+            } catch (IOException e) {
+                System.out.println("Daemon error: " + e);
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("generate")) {
+            // generate [--name=value ...] <output file> - write a synthetic program (see ProgramGenerator)
+            try {
+                new ProgramGenerator().run(args);
+            } catch (Exception e) {
+                System.out.println("Generator error: " + e);
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        run(args);
+    }
+
+    /* Runs a single "[options] <input method> <action> [action args] <input file> <output file>" command.
+     * Returns whether the command completed without an error. */
+    public static boolean run(String[] args) {
+        return run(args, true);
+    }
+
+    /* Same as above, but when exitOnSyntaxError is cleared, a syntax error only fails this command instead of
+     * terminating the JVM (so that a long-running process can carry on with its next command). */
+    public static boolean run(String[] commandLine, boolean exitOnSyntaxError) {
         try {
-            var inputMethod = args[0];
-            var action = args[1];
+            var options = CompilerOptions.parse(commandLine);
+            var args = options.args;
             var filename = args[args.length - 2];
             var outfilename = args[args.length - 1];
 
-            Program prog;
+            var stats = new CompilerStats(options.stats);
+            stats.setInputBytes(new File(filename).length());
+            SymbolTable.retain();
+            try {
+                run(args, options, stats, exitOnSyntaxError);
+            } finally {
+                SymbolTable.release();
+                stats.setOutputBytes(new File(outfilename).length());
+                stats.report(args, options.statsFile);
+            }
+
+            return true;
+        } catch (Parser.SyntaxError e) {
+            // Already reported by the parser
+        } catch (FileNotFoundException e) {
+            System.out.println("Error reading file: " + e);
+            e.printStackTrace();
+        } catch (Exception e) {
+            System.out.println("General error: " + e);
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static void run(String[] args, CompilerOptions options, CompilerStats stats,
+                            boolean exitOnSyntaxError) throws Exception {
+        var inputMethod = args[0];
+        var action = args[1];
+        var filename = args[args.length - 2];
+        var outfilename = args[args.length - 1];
+
+        CompilationCache cache = null;
+        String cacheKey = null;
+        if (options.cacheDir != null && CompilationCache.isCacheable(action)) {
+            stats.start("cache-lookup");
+            cache = new CompilationCache(new File(options.cacheDir).toPath(), options.cacheMaxBytes);
+            cacheKey = cache.key(inputMethod, action, new File(filename).toPath());
+            boolean hit = cache.fetch(cacheKey, new File(outfilename).toPath(), System.out);
+            stats.stop();
+            if (hit) {
+                return;
+            }
+        }
 
-            if (inputMethod.equals("parse")) {
-                FileReader fileReader = new FileReader(new File(filename));
+        if (options.streamXml) {
+            parseToXml(filename, outfilename, options, stats, exitOnSyntaxError);
+            store(cache, cacheKey, outfilename, "", stats);
+            return;
+        }
 
-                Lexer l = new Lexer(fileReader);
-                Parser p = new Parser(l);
-                prog = (Program) (p.parse().value);
+        Program prog;
 
-            } else if (inputMethod.equals("unmarshal")) {
-                AstXMLSerializer xmlSerializer = new AstXMLSerializer();
-                prog = xmlSerializer.deserialize(new File(filename));
+        if (inputMethod.equals("parse")) {
+            stats.start("parse");
+            SourceBuffer source = SourceBuffer.load(new File(filename).toPath());
+            if (options.parser.equals("parallel")) {
+                prog = new ParallelParser(source, options::newLexer, exitOnSyntaxError).parse();
+            } else if (options.parser.equals("descent") && options.tokenBuffer) {
+                TokenBuffer tokens = TokenBuffer.scan(source, options.lexerMode.equals("plain"), options.lazyLines);
+                prog = new DescentParser(tokens, exitOnSyntaxError).parse();
+            } else if (options.parser.equals("descent")) {
+                prog = new DescentParser(options.newLexer(source), exitOnSyntaxError).parse();
             } else {
-                throw new UnsupportedOperationException("unknown input method " + inputMethod);
+                Parser p = new Parser(options.newLexer(source), exitOnSyntaxError);
+                prog = (Program) (p.parse().value);
             }
+            stats.stop();
 
-            var outFile = new PrintWriter(outfilename);
-            try {
+        } else if (inputMethod.equals("unmarshal")) {
+            stats.start("unmarshal");
+            AstSerializer xmlSerializer = options.newXMLSerializer();
+            prog = xmlSerializer.deserialize(new File(filename));
+            stats.stop();
+        } else if (inputMethod.equals("unbinary")) {
+            stats.start("unbinary");
+            prog = new AstBinarySerializer().deserialize(new File(filename));
+            stats.stop();
+        } else {
+            throw new UnsupportedOperationException("unknown input method " + inputMethod);
+        }
+
+        stats.countNodes(prog);
+
+        if (action.equals("build")) {
+            build(prog, Arrays.copyOfRange(args, 2, args.length - 2), outfilename, options, stats);
+            return;
+        }
+
+        // What the action prints to System.out, which the cache keeps with the output
+        String stdoutText = "";
+        var outFile = new PrintWriter(outfilename);
+        try {
+
+            if (action.equals("marshal")) {
+                stats.start("marshal");
+                AstSerializer xmlSerializer = options.newXMLSerializer();
+                xmlSerializer.serialize(prog, outfilename);
+                stats.stop();
+            } else if (action.equals("binary")) {
+                stats.start("binary");
+                new AstBinarySerializer().serialize(prog, outfilename);
+                stats.stop();
+            } else if (action.equals("print")) {
+                stats.start("print");
+                AstPrintVisitor astPrinter = new AstPrintVisitor();
+                astPrinter.visit(prog);
+                stats.stop();
+
+                stats.start("write");
+                outFile.write(astPrinter.getString());
+                outFile.flush();
+                stats.stop();
+
+            } else if (action.equals("semantic")) {
+                stats.start("semantic");
+                AstSemanticChecksVisitor astSemChk = new AstSemanticChecksVisitor(prog);
+                astSemChk.visit(prog);
+                stats.stop();
 
-                if (action.equals("marshal")) {
-                    AstXMLSerializer xmlSerializer = new AstXMLSerializer();
-                    xmlSerializer.serialize(prog, outfilename);
-                } else if (action.equals("print")) {
-                    AstPrintVisitor astPrinter = new AstPrintVisitor();
-                    astPrinter.visit(prog);
-                    outFile.write(astPrinter.getString());
-
-                } else if (action.equals("semantic")) {
-                    AstSemanticChecksVisitor astSemChk = new AstSemanticChecksVisitor(prog);
-                    astSemChk.visit(prog);
-                    outFile.write(astSemChk.getString());
-
-                } else if (action.equals("compile")) {
-                    AstLLVMFormatVisitor LLVMFormatter = new AstLLVMFormatVisitor(prog);
+                stats.start("write");
+                outFile.write(astSemChk.getString());
+                outFile.flush();
+                stats.stop();
+                stdoutText = astSemChk.getReasons();
+
+            } else if (action.equals("compile")) {
+                // The IR is streamed to the output file method by method
+                stats.start("compile");
+                AstLLVMFormatVisitor LLVMFormatter = new AstLLVMFormatVisitor(prog, outFile);
+                try {
                     LLVMFormatter.visit(prog);
-                    outFile.write(LLVMFormatter.getString());
-
-                } else if (action.equals("rename")) {
-                    var type = args[2];
-                    var originalName = args[3];
-                    var originalLine = args[4];
-                    var newName = args[5];
-
-                    boolean isMethod;
-                    if (type.equals("var")) {
-                        isMethod = false;
-                    } else if (type.equals("method")) {
-                        isMethod = true;
-                    } else {
-                        throw new IllegalArgumentException("unknown rename type " + type);
-                    }
+                    LLVMFormatter.flush();
+                } catch (RuntimeException e) {
+                    // Not leaving the IR of the methods that were already streamed behind
+                    outFile.close();
+                    new PrintWriter(outfilename).close();
+                    throw e;
+                }
+                stats.stop();
+                if (outFile.checkError()) {
+                    throw new IOException("Error writing file " + outfilename);
+                }
 
-                    RenamingFactory.rename(prog, originalName, newName, Integer.parseInt(originalLine), isMethod);
-                    new AstXMLSerializer().serialize(prog, outfilename);
+            } else if (action.equals("rename")) {
+                var type = args[2];
+                var originalName = args[3];
+                var originalLine = args[4];
+                var newName = args[5];
 
+                boolean isMethod;
+                if (type.equals("var")) {
+                    isMethod = false;
+                } else if (type.equals("method")) {
+                    isMethod = true;
                 } else {
-                    throw new IllegalArgumentException("unknown command line action " + action);
+                    throw new IllegalArgumentException("unknown rename type " + type);
                 }
-            } finally {
-                outFile.flush();
-                outFile.close();
+
+                stats.start("rename");
+                RenamingFactory.rename(prog, originalName, newName, Integer.parseInt(originalLine), isMethod);
+                stats.stop();
+
+                stats.start("marshal");
+                options.newXMLSerializer().serialize(prog, outfilename);
+                stats.stop();
+
+            } else {
+                throw new IllegalArgumentException("unknown command line action " + action);
             }
+        } finally {
+            outFile.flush();
+            outFile.close();
+        }
 
-        } catch (FileNotFoundException e) {
-            System.out.println("Error reading file: " + e);
-            e.printStackTrace();
-        } catch (Exception e) {
-            System.out.println("General error: " + e);
-            e.printStackTrace();
+        store(cache, cacheKey, outfilename, stdoutText, stats);
+    }
+
+    private static void store(CompilationCache cache, String cacheKey, String outfilename, String stdoutText,
+                              CompilerStats stats) throws IOException {
+        if (cache != null) {
+            stats.start("cache-store");
+            cache.store(cacheKey, new File(outfilename).toPath(), stdoutText);
+            stats.stop();
+        }
+    }
+
+    /* "--stream-xml parse marshal": the parser hands every class to the XML writer as soon as it is parsed (see
+     * ProgramSink), and keeps none of them, so the memory is bounded by the largest class instead of the whole AST.
+     * The XML is written to a temporary file beside the output, which replaces the output only when the whole source
+     * parsed, so a syntax error leaves no partial XML behind. */
+    private static void parseToXml(String filename, String outfilename, CompilerOptions options, CompilerStats stats,
+                                   boolean exitOnSyntaxError) throws Exception {
+        stats.start("parse-marshal");
+        SourceBuffer source = SourceBuffer.load(new File(filename).toPath());
+        Path outFile = new File(outfilename).toPath();
+        Path temp = Files.createTempFile(outFile.toAbsolutePath().getParent(), outFile.getFileName().toString(), ".tmp");
+        try {
+            try (var out = Files.newOutputStream(temp)) {
+                var writer = new AstStaxSerializer.ProgramStreamWriter(out);
+                ProgramSink sink = new ProgramSink() {
+                    @Override
+                    public void mainClass(MainClass mainClass) {
+                        writer.mainClass(mainClass);
+                    }
+
+                    @Override
+                    public void classDecl(ClassDecl classDecl) {
+                        stats.countNodes(classDecl);
+                        writer.classDecl(classDecl);
+                    }
+                };
+
+                Program prog = parseInto(sink, source, options);
+                writer.end();
+                // The program and its main class, whose classes were counted as they were written
+                stats.countNodes(prog);
+            }
+            Files.move(temp, outFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Parser.SyntaxError e) {
+            // The parsers throw their errors, so that the temporary file (closed by now) is removed before exiting
+            if (exitOnSyntaxError) {
+                Files.deleteIfExists(temp);
+                System.exit(1);
+            }
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        stats.stop();
+    }
+
+    private static Program parseInto(ProgramSink sink, SourceBuffer source, CompilerOptions options)
+            throws Exception {
+        if (options.parser.equals("descent")) {
+            DescentParser parser = options.tokenBuffer
+                    ? new DescentParser(TokenBuffer.scan(source, options.lexerMode.equals("plain"), options.lazyLines),
+                            false)
+                    : new DescentParser(options.newLexer(source), false);
+            parser.sink = sink;
+            return parser.parse();
+        }
+        Parser parser = new Parser(options.newLexer(source), false);
+        parser.sink = sink;
+        return (Program) parser.parse().value;
+    }
+
+    /* The fused "build" action: "<input method> build [marshal] [print] <input file> <output.ll>".
+     * The AST is built once, and is semantically checked in memory. The result of the checks is written to
+     * <output>.res, and only when they pass, the LLVM IR is written to <output>.ll, along with the requested
+     * <output>.xml (marshal) and <output>.java (print) outputs of the same AST. */
+    private static void build(Program prog, String[] extraOutputs, String outfilename, CompilerOptions options,
+                              CompilerStats stats) throws IOException {
+        var base = outfilename.endsWith(".ll") ? outfilename.substring(0, outfilename.length() - 3) : outfilename;
+
+        stats.start("semantic");
+        AstSemanticChecksVisitor astSemChk = new AstSemanticChecksVisitor(prog);
+        astSemChk.visit(prog);
+        stats.stop();
+
+        writeFile(base + ".res", astSemChk.getString());
+        if (!astSemChk.getString().equals("OK\n")) {
+            // No outputs of an invalid program (and no stale ones from an earlier build)
+            new File(outfilename).delete();
+            return;
+        }
+
+        stats.start("compile");
+        try (var outFile = new BufferedWriter(new FileWriter(outfilename))) {
+            AstLLVMFormatVisitor LLVMFormatter = new AstLLVMFormatVisitor(prog, outFile);
+            LLVMFormatter.visit(prog);
+            LLVMFormatter.flush();
+        } catch (RuntimeException e) {
+            new File(outfilename).delete();
+            throw e;
+        }
+        stats.stop();
+
+        for (var output : extraOutputs) {
+            if (output.equals("marshal")) {
+                stats.start("marshal");
+                options.newXMLSerializer().serialize(prog, base + ".xml");
+                stats.stop();
+            } else if (output.equals("print")) {
+                stats.start("print");
+                AstPrintVisitor astPrinter = new AstPrintVisitor();
+                astPrinter.visit(prog);
+                writeFile(base + ".java", astPrinter.getString());
+                stats.stop();
+            } else {
+                throw new IllegalArgumentException("unknown build output " + output);
+            }
+        }
+    }
+
+    private static void writeFile(String filename, String content) throws IOException {
+        try (var outFile = new PrintWriter(filename)) {
+            outFile.write(content);
         }
     }
 }
@@ -0,0 +1,191 @@
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+public class ParallelParser {
+    /* Parses the main class and the classes of a source concurrently (selected with --parser=parallel), each with a
+     * lexer and a DescentParser of its own, so the parse time of a very large source scales with the cores. A pre-scan
+     * over the chars finds the top-level "class ... { ... }" regions, skipping the comments and matching the curly
+     * brackets. Every region is copied into a buffer of its own and lexed from its own first line, so the line numbers
+     * are the absolute ones, and the declarations are merged in the order of the source.
+     *
+     * A region parses to the same subtree as in the parse of the whole source, as the grammar is context free and no
+     * token looks past the closing "}" of a class. A source that the pre-scan cannot split into regions (only
+     * whitespace and comments may come between them), or in which some region does not parse, is parsed again as a
+     * whole by the LALR parser, which reports all the syntax errors as usual. */
+
+    private static class Region {
+        // The offsets [start, end) of the class, from its "class" to its closing "}", and the line of its start
+        final int start;
+        final int end;
+        final int line;
+
+        Region(int start, int end, int line) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+    }
+
+    private final SourceBuffer source;
+    private final Function<SourceBuffer, Lexer> newLexer;
+    private final boolean exitOnError;
+
+    public ParallelParser(SourceBuffer source, Function<SourceBuffer, Lexer> newLexer, boolean exitOnError) {
+        this.source = source;
+        this.newLexer = newLexer;
+        this.exitOnError = exitOnError;
+    }
+
+    public Program parse() throws Exception {
+        List<Region> regions = scanClasses(source.chars(), source.length);
+        if (regions != null && !regions.isEmpty()) {
+            // The declarations are collected by index, so they keep the order of the source
+            AstNode[] decls = new AstNode[regions.size()];
+            boolean parsed = IntStream.range(0, regions.size()).parallel().allMatch(i -> {
+                decls[i] = parseRegion(regions.get(i), i == 0);
+                return decls[i] != null;
+            });
+            if (parsed) {
+                List<ClassDecl> classDecls = new ArrayList<>(decls.length - 1);
+                for (int i = 1; i < decls.length; i++) {
+                    classDecls.add((ClassDecl) decls[i]);
+                }
+                return new Program((MainClass) decls[0], classDecls);
+            }
+        }
+
+        Parser parser = new Parser(newLexer.apply(source), exitOnError);
+        return (Program) parser.parse().value;
+    }
+
+    private AstNode parseRegion(Region region, boolean mainClass) {
+        Lexer lexer = newLexer.apply(source.region(region.start, region.end));
+        lexer.startAtLine(region.line);
+        var parser = new DescentParser(lexer, false);
+        parser.reportErrors = false;
+        try {
+            return mainClass ? parser.parseMainClass() : parser.parseClassDecl();
+        } catch (RuntimeException e) {
+            // Reported by the parse of the whole source
+            return null;
+        }
+    }
+
+    /*****************/
+    /* The pre-scan  */
+    /*****************/
+
+    // The ASCII chars that the pre-scan of a class looks at: those of the comments, the curly brackets and the lines
+    private static final boolean[] SPECIAL = new boolean[128];
+    static {
+        for (char c : "/{}\n\u000B\f\r".toCharArray()) {
+            SPECIAL[c] = true;
+        }
+    }
+
+    /* The regions of the top-level classes, or null when the source is not a sequence of them. The lines are counted
+     * as the lexer counts them. */
+    private static List<Region> scanClasses(char[] chars, int length) {
+        List<Region> regions = new ArrayList<>();
+        int depth = 0;
+        int line = 1;
+        // The start and line of the class being scanned, or -1 between the classes
+        int start = -1;
+        int startLine = 0;
+
+        int i = 0;
+        while (i < length) {
+            char c = chars[i];
+            if (start >= 0 && c < SPECIAL.length && !SPECIAL[c]) {
+                // Most of the chars, which only the lexer cares about
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && chars[i + 1] == '/') {
+                // Up to (not including) the end of the line
+                while (i < length && !LineTable.isLineTerminator(chars[i])) {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && i + 1 < length && chars[i + 1] == '*') {
+                int end = i + 2;
+                while (end + 1 < length && !(chars[end] == '*' && chars[end + 1] == '/')) {
+                    end++;
+                }
+                if (end + 1 >= length) {
+                    // An unterminated comment
+                    return null;
+                }
+                line += countLines(chars, i, end + 2);
+                i = end + 2;
+                continue;
+            }
+            if (LineTable.isLineTerminator(c)) {
+                if (start < 0 && c > '\r') {
+                    // Not whitespace to the lexer, which leaves the error to the parse of the whole source
+                    return null;
+                }
+                line += countLines(chars, i, i + 1);
+                i++;
+                continue;
+            }
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth < 0 || start < 0) {
+                    return null;
+                }
+                if (depth == 0) {
+                    regions.add(new Region(start, i + 1, startLine));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                // Between the classes, where only whitespace (and comments) may come before the next "class"
+                if (c == ' ' || c == '\t') {
+                    i++;
+                    continue;
+                }
+                if (!startsClass(chars, i, length)) {
+                    return null;
+                }
+                start = i;
+                startLine = line;
+            }
+            i++;
+        }
+        return start < 0 ? regions : null;
+    }
+
+    private static boolean startsClass(char[] chars, int i, int length) {
+        String keyword = "class";
+        if (i + keyword.length() > length) {
+            return false;
+        }
+        for (int k = 0; k < keyword.length(); k++) {
+            if (chars[i + k] != keyword.charAt(k)) {
+                return false;
+            }
+        }
+        int next = i + keyword.length();
+        return next == length || !Character.isLetterOrDigit(chars[next]) && chars[next] != '_';
+    }
+
+    // The lines that end in chars[start, end), where "\r\n" ends a single line
+    private static int countLines(char[] chars, int start, int end) {
+        int lines = 0;
+        for (int i = start; i < end; i++) {
+            boolean crlf = chars[i] == '\r' && i + 1 < chars.length && chars[i + 1] == '\n';
+            if (LineTable.isLineTerminator(chars[i]) && !crlf) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
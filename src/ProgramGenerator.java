@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ProgramGenerator {
+    /* Generates large synthetic MiniJava programs, which pass both the parser and the semantic checks:
+     *      generate [--classes=N] [--depth=N] [--methods=N] [--fields=N] [--statements=N] [--nesting=N]
+     *               [--expr-size=N] [--seed=N] <output file>
+     * The classes form inheritance chains of at most "depth" classes, each class declaring "fields" fields (of the
+     * three primitive types in turn) and "methods" methods, about half of which override an inherited method.
+     * Every method body holds "statements" top level statements, nested up to "nesting" levels of if/while, whose
+     * expressions have about "expr-size" nodes.
+     * All the methods share the signature "int m(int p0, int p1)", so that any method can be called from anywhere
+     * and overriding is always valid; the method bodies first initialize all of their local variables. */
+
+    private int classes = 10;
+    private int depth = 3;
+    private int methods = 5;
+    private int fields = 3;
+    private int statements = 5;
+    private int nesting = 2;
+    private int exprSize = 4;
+    private long seed = 0;
+
+    private Random random;
+    private PrintWriter out;
+    private int indent;
+
+    // The superclass of every class (-1 for none), and the number of classes in its chain
+    private int[] superClasses;
+    private int[] chainLengths;
+    // The methods every class declares itself (including overrides)
+    private List<List<String>> declaredMethods;
+
+    // The class, and the reference typed local variable, of the method being generated
+    private int currentClass;
+    private int localObjectClass;
+
+    public void run(String[] args) throws IOException {
+        int i = 1;
+        while (i < args.length && args[i].startsWith("--")) {
+            String option = args[i].substring(2);
+            int separator = option.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("option --" + option + " requires a value");
+            }
+            setOption(option.substring(0, separator), option.substring(separator + 1));
+            i++;
+        }
+        if (i != args.length - 1) {
+            throw new IllegalArgumentException("usage: generate [--name=value ...] <output file>");
+        }
+
+        try (var writer = new PrintWriter(args[i])) {
+            generate(writer);
+        }
+    }
+
+    private void setOption(String name, String value) {
+        switch (name) {
+            case "classes": classes = Integer.parseInt(value); break;
+            case "depth": depth = Integer.parseInt(value); break;
+            case "methods": methods = Integer.parseInt(value); break;
+            case "fields": fields = Integer.parseInt(value); break;
+            case "statements": statements = Integer.parseInt(value); break;
+            case "nesting": nesting = Integer.parseInt(value); break;
+            case "expr-size": exprSize = Integer.parseInt(value); break;
+            case "seed": seed = Long.parseLong(value); break;
+            default: throw new IllegalArgumentException("unknown generator option --" + name);
+        }
+    }
+
+    public ProgramGenerator classes(int classes) {
+        this.classes = classes;
+        return this;
+    }
+
+    public ProgramGenerator depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public ProgramGenerator methods(int methods) {
+        this.methods = methods;
+        return this;
+    }
+
+    public ProgramGenerator fields(int fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    public ProgramGenerator statements(int statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    public ProgramGenerator nesting(int nesting) {
+        this.nesting = nesting;
+        return this;
+    }
+
+    public ProgramGenerator exprSize(int exprSize) {
+        this.exprSize = exprSize;
+        return this;
+    }
+
+    public ProgramGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public void generate(PrintWriter writer) {
+        random = new Random(seed);
+        out = writer;
+        indent = 0;
+
+        planHierarchy();
+
+        line("class Main {");
+        indent++;
+        line("public static void main(String[] args) {");
+        indent++;
+        if (classes > 0 && methods > 0) {
+            line("System.out.println(new C0().%s(1, 2));", declaredMethods.get(0).get(0));
+        } else {
+            line("System.out.println(0);");
+        }
+        indent--;
+        line("}");
+        indent--;
+        line("}");
+
+        for (int c = 0; c < classes; c++) {
+            line("");
+            generateClass(c);
+        }
+    }
+
+    private void planHierarchy() {
+        /* A class extends a random earlier class whose chain is not full yet, or starts a new chain */
+        superClasses = new int[classes];
+        chainLengths = new int[classes];
+        declaredMethods = new ArrayList<>();
+        for (int c = 0; c < classes; c++) {
+            superClasses[c] = -1;
+            chainLengths[c] = 1;
+            if (c > 0 && random.nextInt(4) != 0) {
+                int candidate = random.nextInt(c);
+                if (chainLengths[candidate] < depth) {
+                    superClasses[c] = candidate;
+                    chainLengths[c] = chainLengths[candidate] + 1;
+                }
+            }
+
+            List<String> inherited = visibleMethods(superClasses[c]);
+            List<String> declared = new ArrayList<>();
+            for (int m = 0; m < methods; m++) {
+                String name = "m" + c + "_" + m;
+                if (!inherited.isEmpty() && random.nextBoolean()) {
+                    String overridden = inherited.get(random.nextInt(inherited.size()));
+                    if (!declared.contains(overridden)) {
+                        name = overridden;
+                    }
+                }
+                declared.add(name);
+            }
+            declaredMethods.add(declared);
+        }
+    }
+
+    private List<String> visibleMethods(int c) {
+        List<String> visible = new ArrayList<>();
+        for (; c >= 0; c = superClasses[c]) {
+            for (String name : declaredMethods.get(c)) {
+                if (!visible.contains(name)) {
+                    visible.add(name);
+                }
+            }
+        }
+        return visible;
+    }
+
+    /* The visible fields of the given type (0 - int, 1 - boolean, 2 - int[]) */
+    private List<String> visibleFields(int c, int type) {
+        List<String> visible = new ArrayList<>();
+        for (; c >= 0; c = superClasses[c]) {
+            for (int f = type; f < fields; f += 3) {
+                visible.add("f" + c + "_" + f);
+            }
+        }
+        return visible;
+    }
+
+    private void generateClass(int c) {
+        currentClass = c;
+        line(superClasses[c] < 0 ? "class C%d {" : "class C%d extends C" + superClasses[c] + " {", c);
+        indent++;
+        for (int f = 0; f < fields; f++) {
+            String[] types = {"int", "boolean", "int[]"};
+            line("%s f%d_%d;", types[f % 3], c, f);
+        }
+        for (String name : declaredMethods.get(c)) {
+            line("");
+            generateMethod(name);
+        }
+        indent--;
+        line("}");
+    }
+
+    private void generateMethod(String name) {
+        localObjectClass = random.nextInt(currentClass + 1);
+
+        line("public int %s(int p0, int p1) {", name);
+        indent++;
+        line("int x;");
+        line("int y;");
+        line("boolean b;");
+        line("int[] arr;");
+        line("C%d o;", localObjectClass);
+        line("x = p0;");
+        line("y = p1;");
+        line("b = true;");
+        line("arr = new int[10];");
+        line("o = new C%d();", localObjectClass);
+        for (int s = 0; s < statements; s++) {
+            generateStatement(nesting);
+        }
+        line("return %s;", intExpr(exprSize));
+        indent--;
+        line("}");
+    }
+
+    private void generateStatement(int nestingLeft) {
+        int kind = random.nextInt(nestingLeft > 0 ? 8 : 6);
+        switch (kind) {
+            case 0:
+                line("System.out.println(%s);", intExpr(exprSize));
+                break;
+            case 1:
+                line("%s = %s;", random.nextBoolean() ? "x" : "y", intExpr(exprSize));
+                break;
+            case 2:
+                line("b = %s;", boolExpr(exprSize));
+                break;
+            case 3:
+                line("arr[%s] = %s;", intExpr(exprSize / 2), intExpr(exprSize / 2));
+                break;
+            case 4:
+            case 5:
+                generateFieldAssignment();
+                break;
+            case 6:
+                line("if (%s) {", boolExpr(exprSize));
+                generateBlock(nestingLeft - 1);
+                line("} else {");
+                generateBlock(nestingLeft - 1);
+                line("}");
+                break;
+            default:
+                line("while (%s) {", boolExpr(exprSize));
+                generateBlock(nestingLeft - 1);
+                line("}");
+        }
+    }
+
+    private void generateFieldAssignment() {
+        List<String> intFields = visibleFields(currentClass, 0);
+        List<String> boolFields = visibleFields(currentClass, 1);
+        if (!intFields.isEmpty() && (boolFields.isEmpty() || random.nextBoolean())) {
+            line("%s = %s;", pick(intFields), intExpr(exprSize));
+        } else if (!boolFields.isEmpty()) {
+            line("%s = %s;", pick(boolFields), boolExpr(exprSize));
+        } else {
+            line("x = %s;", intExpr(exprSize));
+        }
+    }
+
+    private void generateBlock(int nestingLeft) {
+        indent++;
+        int count = 1 + random.nextInt(3);
+        for (int s = 0; s < count; s++) {
+            generateStatement(nestingLeft);
+        }
+        indent--;
+    }
+
+    private String intExpr(int size) {
+        if (size <= 1) {
+            switch (random.nextInt(6)) {
+                case 0: return Integer.toString(random.nextInt(100));
+                case 1: return "x";
+                case 2: return "y";
+                case 3: return random.nextBoolean() ? "p0" : "p1";
+                case 4: return "arr.length";
+                default:
+                    List<String> intFields = visibleFields(currentClass, 0);
+                    return intFields.isEmpty() ? "x" : pick(intFields);
+            }
+        }
+
+        int left = 1 + random.nextInt(size - 1);
+        switch (random.nextInt(5)) {
+            case 0: return "(" + intExpr(left) + " + " + intExpr(size - left) + ")";
+            case 1: return "(" + intExpr(left) + " - " + intExpr(size - left) + ")";
+            case 2: return "(" + intExpr(left) + " * " + intExpr(size - left) + ")";
+            case 3: return "arr[" + intExpr(size - 1) + "]";
+            default: return methodCall(size);
+        }
+    }
+
+    private String methodCall(int size) {
+        String owner;
+        int ownerClass;
+        switch (random.nextInt(3)) {
+            case 0:
+                owner = "this";
+                ownerClass = currentClass;
+                break;
+            case 1:
+                owner = "o";
+                ownerClass = localObjectClass;
+                break;
+            default:
+                ownerClass = random.nextInt(classes);
+                owner = "new C" + ownerClass + "()";
+        }
+        int left = Math.max(1, (size - 1) / 2);
+        return owner + "." + pick(visibleMethods(ownerClass)) + "(" + intExpr(left) + ", " +
+                intExpr(Math.max(1, size - 1 - left)) + ")";
+    }
+
+    private String boolExpr(int size) {
+        if (size <= 1) {
+            switch (random.nextInt(4)) {
+                case 0: return "true";
+                case 1: return "false";
+                case 2: return "b";
+                default:
+                    List<String> boolFields = visibleFields(currentClass, 1);
+                    return boolFields.isEmpty() ? "b" : pick(boolFields);
+            }
+        }
+
+        int left = 1 + random.nextInt(size - 1);
+        switch (random.nextInt(3)) {
+            case 0: return "(" + intExpr(left) + " < " + intExpr(size - left) + ")";
+            case 1: return "(" + boolExpr(left) + " && " + boolExpr(size - left) + ")";
+            default: return "!(" + boolExpr(size - 1) + ")";
+        }
+    }
+
+    private String pick(List<String> names) {
+        return names.get(random.nextInt(names.size()));
+    }
+
+    private void line(String format, Object... args) {
+        if (format.isEmpty()) {
+            out.println();
+        } else {
+            out.println("\t".repeat(indent) + String.format(format, args));
+        }
+    }
+}
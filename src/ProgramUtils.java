@@ -6,18 +6,16 @@ import java.util.HashMap;
 public class ProgramUtils {
 
     Program program;
+    ClassHierarchy hierarchy;
 
     public ProgramUtils(Program program) {
         this.program = program;
+        this.hierarchy = new ClassHierarchy(program);
     }
 
     public ClassDecl getClassNode(String className) {
-        for (ClassDecl classdecl : program.classDecls()) {
-            if (classdecl.name().equals(className))  {
-                return classdecl;
-            }
-        }
-        return null;
+        int node = hierarchy.nodeOf(SymbolTable.intern(className));
+        return node == ClassHierarchy.NO_CLASS ? null : hierarchy.classDecl(node);
     }
 
     public MethodDecl getMethodNode(ClassDecl classNode, String methodName) {
@@ -35,7 +33,10 @@ public class ProgramUtils {
     }
 
     public VarDecl getFieldNode(String className, String fieldName) {
-        ClassDecl classNode = getClassNode(className);
+        return getFieldNode(getClassNode(className), fieldName);
+    }
+
+    public VarDecl getFieldNode(ClassDecl classNode, String fieldName) {
         for (VarDecl field : classNode.fields()) {
             if (field.name().equals(fieldName)) {
                 return field;
@@ -52,6 +53,10 @@ public class ProgramUtils {
         return getMethodNode(className, methodName) != null;
     }
 
+    public boolean doesClassContainField(ClassDecl classNode, String fieldName) {
+        return getFieldNode(classNode, fieldName) != null;
+    }
+
     public boolean doesClassContainField(String className, String fieldName) {
         return getFieldNode(className, fieldName) != null;
     }
@@ -62,52 +67,27 @@ public class ProgramUtils {
         1. The given class' most ancient ancestor with a declaration of the given method name
         2. The descendants of the above class
          */
-        ClassDecl firstAncestorWithMethod = getFirstAncestorWithMethod(originalClassName, methodName);
-        assert (firstAncestorWithMethod != null);
+        int firstAncestorWithMethod = getFirstAncestorWithMethod(originalClassName, methodName);
+        assert (firstAncestorWithMethod != ClassHierarchy.NO_CLASS);
 
         ArrayList<String> descendants = new ArrayList<>();
-        descendants.add(firstAncestorWithMethod.name());
-        getDescendantsNames(firstAncestorWithMethod.name(), descendants);
+        descendants.add(hierarchy.classDecl(firstAncestorWithMethod).name());
+        for (int i = 0; i < hierarchy.descendantCount(firstAncestorWithMethod); i++) {
+            descendants.add(hierarchy.classDecl(hierarchy.descendant(firstAncestorWithMethod, i)).name());
+        }
         return descendants;
     }
 
-    private void getDescendantsNames(String baseClassName, ArrayList<String> descendants) {
-        ArrayList<String> children = new ArrayList<>();
-
-        for (ClassDecl classdecl : program.classDecls()) {
-            if (classdecl.superName() != null && classdecl.superName().equals(baseClassName)) {
-                children.add(classdecl.name());
+    private int getFirstAncestorWithMethod(String className, String methodName) {
+        /* Going up from the class to the root of its hierarchy, so the last class found with the method is the most
+        ancient one. The walk stops at the main class (node 0), which is never a superclass of the renamed class. */
+        int firstAncestorWithMethod = ClassHierarchy.NO_CLASS;
+        for (int node = hierarchy.nodeOf(SymbolTable.intern(className)); node > 0; node = hierarchy.superclass(node)) {
+            if (doesClassContainMethod(hierarchy.classDecl(node), methodName)) {
+                firstAncestorWithMethod = node;
             }
         }
-
-        for (String child: children) {
-            descendants.add(child);
-            getDescendantsNames(child, descendants);
-        }
-    }
-
-    private ClassDecl getFirstAncestorWithMethod(String className, String methodName) {
-        /* Gathering a list of the class and its ancestors, ordered by hierarchy */
-        ArrayList<ClassDecl> ancestors = new ArrayList<>();
-        getAncestorsNodes(className, ancestors);
-
-        for (ClassDecl classNode : ancestors) {
-            if (doesClassContainMethod(classNode, methodName)) {
-                return classNode;
-            }
-        }
-        return null;
-    }
-
-    private void getAncestorsNodes(String baseClassName, ArrayList<ClassDecl> ancestors) {
-        ClassDecl baseClassNode = getClassNode(baseClassName);
-        assert (baseClassNode != null);
-
-        ancestors.add(0, baseClassNode);
-        if (baseClassNode.superName() != null) {
-            getAncestorsNodes(baseClassNode.superName(), ancestors);
-        }
-
+        return firstAncestorWithMethod;
     }
 
     public ArrayList<String> getAffectedClassesOfFieldModifying(String originalClassName, String fieldName) {
@@ -120,49 +100,42 @@ public class ProgramUtils {
          */
         ArrayList<String> affectedClasses = new ArrayList<>();
         affectedClasses.add(originalClassName);
-        getDescendantsWithoutFieldShadowing(originalClassName, fieldName, affectedClasses);
-
-        return affectedClasses;
-    }
-
-    private void getDescendantsWithoutFieldShadowing(String baseClassName, String fieldName,
-                                                     ArrayList<String> descendants) {
-        /* Given a class name, this function extracts its descendants in the following way:
-           1. Extracts the immediate children of the given base class
-           2. For the children whose fields don't shadow the given field name, runs this function recursively with them
-              as the base class
-         */
-        ArrayList<String> children = new ArrayList<>();
+        if (doesClassContainField(originalClassName, fieldName)) {
+            return affectedClasses;
+        }
 
-        for (ClassDecl classdecl : program.classDecls()) {
-            if (!doesClassContainField(baseClassName, fieldName) && classdecl.superName() != null &&
-                    classdecl.superName().equals(baseClassName)) {
-                children.add(classdecl.name());
+        /* Going over the descendants of the class in pre-order, where the subclasses of a descendant that shadows the
+        field are skipped (they are the descendantCount classes that follow it) */
+        int baseNode = hierarchy.nodeOf(SymbolTable.intern(originalClassName));
+        for (int i = 0; i < hierarchy.descendantCount(baseNode); i++) {
+            int node = hierarchy.descendant(baseNode, i);
+            ClassDecl classNode = hierarchy.classDecl(node);
+            affectedClasses.add(classNode.name());
+            if (doesClassContainField(classNode, fieldName)) {
+                i += hierarchy.descendantCount(node);
             }
         }
 
-        for (String child: children) {
-            descendants.add(child);
-            getDescendantsWithoutFieldShadowing(child, fieldName, descendants);
-        }
+        return affectedClasses;
     }
 
     public HashMap<String, HashMap<String, String>> getTypesOfFieldsByClass() {
         HashMap<String, HashMap<String, String>> typesOfFieldsByClass = new HashMap<>();
 
         String className;
-        String superClass;
+        int superNode;
         HashMap<String, String> classFields;
         HashMap<String, String> superClassFields;
-        for (ClassDecl classNode : program.classDecls()) {
+        for (int node = 1; node < hierarchy.size(); node++) {
+            ClassDecl classNode = hierarchy.classDecl(node);
             className = classNode.name();
             classFields = new HashMap<>();
-            superClass = classNode.superName();
+            superNode = hierarchy.superclass(node);
 
-            if (superClass != null) {
+            if (superNode != ClassHierarchy.NO_CLASS) {
                 // The class extends another class, so it inherits its field (since a super class precedes an inheriting
                 // class in its declaration, the super class for sure has already been processed)
-                superClassFields = typesOfFieldsByClass.get(superClass);
+                superClassFields = typesOfFieldsByClass.get(hierarchy.classDecl(superNode).name());
                 for (String field : superClassFields.keySet()) {
                     classFields.put(field, superClassFields.get(field));
                 }
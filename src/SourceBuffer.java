@@ -0,0 +1,107 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SourceBuffer {
+    /* The whole text of a source file, decoded in bulk into a single char array which the lexer scans in place.
+     * The file is memory mapped, and decoded as ASCII by a plain copy loop, falling back to a UTF-8 decoder when
+     * it holds other characters (malformed input is replaced, as a FileReader would).
+     *
+     * A buffer given to Lexer(SourceBuffer) belongs to that lexer from then on: the lexer moves the chars of its
+     * buffer when it reaches their end, so they are not the text of the source anymore. The buffer then refuses to
+     * be read (chars() and region() throw), and a caller that needs the text after lexing it takes a region() (a
+     * copy) for the lexer instead. */
+
+    private final char[] chars;
+    public final int length;
+    private boolean lexed = false;
+
+    private SourceBuffer(char[] chars, int length) {
+        this.chars = chars;
+        this.length = length;
+    }
+
+    public static SourceBuffer load(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= Integer.MAX_VALUE) {
+                throw new IOException("source file " + path + " is too large");
+            }
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(bytes);
+        } catch (NoSuchFileException e) {
+            // Reported like the FileReader this replaces
+            throw new FileNotFoundException(path + " (No such file or directory)");
+        }
+    }
+
+    /* A source held in chars already, the first length of which are its text. They are not copied: IncrementalParser
+     * edits its chars in place, and then the TokenBuffer that was scanned from them. */
+    static SourceBuffer wrap(char[] chars, int length) {
+        return new SourceBuffer(chars, length);
+    }
+
+    /* The chars of the source, of which the first length are its text (and which are not to be written) */
+    public char[] chars() {
+        checkNotLexed();
+        return chars;
+    }
+
+    /* Hands the chars over to a lexer that scans them in place (see the class comment) */
+    char[] takeChars() {
+        checkNotLexed();
+        lexed = true;
+        return chars;
+    }
+
+    /* A copy of the chars [start, end), for a lexer of a region of the source (a lexer moves the chars of its buffer
+     * when it reaches their end, so two lexers never share one) */
+    public SourceBuffer region(int start, int end) {
+        checkNotLexed();
+        char[] copy = new char[end - start + 1];
+        System.arraycopy(chars, start, copy, 0, end - start);
+        return new SourceBuffer(copy, end - start);
+    }
+
+    static SourceBuffer decode(ByteBuffer bytes) throws IOException {
+        int size = bytes.remaining();
+
+        /* One extra char, so the lexer never has to grow (copy) the buffer when it looks for more input at the
+         * end of the file */
+        char[] chars = new char[size + 1];
+        int start = bytes.position();
+        int i = 0;
+        for (; i < size; i++) {
+            byte b = bytes.get(start + i);
+            if (b < 0) {
+                break;
+            }
+            chars[i] = (char) b;
+        }
+        if (i == size) {
+            return new SourceBuffer(chars, size);
+        }
+
+        // Not plain ASCII: decoding the rest as UTF-8, which never takes more chars than bytes
+        CharBuffer out = CharBuffer.wrap(chars, i, chars.length - i);
+        var decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        decoder.decode(bytes.position(start + i), out, true);
+        decoder.flush(out);
+        return new SourceBuffer(chars, out.position());
+    }
+
+    private void checkNotLexed() {
+        if (lexed) {
+            throw new IllegalStateException("the source buffer belongs to a lexer, which may have moved its chars");
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import ast.Identifier;
+import ast.SymbolTable;
+import java_cup.runtime.Symbol;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+public class TokenBuffer {
+    /* The tokens of a whole source, in a struct of arrays: token i is of the kind kinds[i] (a sym constant), starts at
+     * the offset starts[i] of the chars and spans lengths[i] of them, and lines[i] and columns[i] are the line and the
+     * column that the lexer reports for it (Lexer.getLine and Lexer.getCharPos, see line and column). The last token is
+     * the EOF.
+     *
+     * The lexer that fills the buffer reuses a single Symbol (see Lexer.reuseSymbols), so scanning allocates nothing
+     * per token, and the values of the IDs and NUMBERs are taken from the chars when they are asked for. In the lazy
+     * lines mode the lexer (OffsetLexer) does not count the lines and columns either, and the line and the column of a
+     * token are found from its offset when asked for (see LineTable), which only diagnostics and the line numbers of
+     * the AST do. The tokens
+     * can be read by index in any order and any number of times (DescentParser reads them with no allocation either),
+     * and after an edit of the source only the tokens around it are lexed again (see edit). */
+
+    // The tokens that can only end a statement or a block: a token before one never looks past it (see edit)
+    private static final boolean[] SEPARATOR = new boolean[sym.terminalNames.length];
+    static {
+        SEPARATOR[sym.SEMICOLON] = true;
+        SEPARATOR[sym.LCURLY] = true;
+        SEPARATOR[sym.RCURLY] = true;
+    }
+
+    private char[] chars;
+    private int length;
+    private final boolean plainTokens;
+    // The lines of the chars in the lazy lines mode, where lines and columns are null
+    private final LineTable lineTable;
+    // The error tokens (illegal characters) among the tokens (see edit)
+    private int illegals = 0;
+
+    public int size = 0;
+    public int[] kinds;
+    public int[] starts;
+    public int[] lengths;
+    private int[] lines;
+    private int[] columns;
+
+    private TokenBuffer(SourceBuffer source, boolean plainTokens, LineTable lineTable, int capacity) {
+        this.chars = source.chars();
+        this.length = source.length;
+        this.plainTokens = plainTokens;
+        this.lineTable = lineTable;
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        if (lineTable == null) {
+            lines = new int[capacity];
+            columns = new int[capacity];
+        }
+    }
+
+    /* The tokens of the source, in the lookahead or the plain tokens mode of the lexer, and in the lazy lines mode or
+     * with the lines counted by the lexer */
+    public static TokenBuffer scan(SourceBuffer source, boolean plainTokens, boolean lazyLines) {
+        LineTable lineTable = lazyLines ? LineTable.of(source.chars(), source.length) : null;
+        // A token per 2 to 3 chars is about the density of the examples
+        var tokens = new TokenBuffer(source, plainTokens, lineTable, source.length / 2 + 16);
+        tokens.lex(0, 1, 0, -1, null, 0);
+        return tokens;
+    }
+
+    public int line(int token) {
+        return lineTable != null ? lineTable.line(starts[token]) : lines[token];
+    }
+
+    public int column(int token) {
+        return lineTable != null ? lineTable.column(starts[token]) : columns[token];
+    }
+
+    /*****************/
+    /* The values    */
+    /*****************/
+
+    public String text(int token) {
+        return new String(chars, starts[token], lengths[token]);
+    }
+
+    // The interned name and symbol of an ID (see ast.SymbolTable)
+    public Identifier identifier(int token) {
+        return SymbolTable.identifier(chars, starts[token], lengths[token]);
+    }
+
+    public int number(int token) {
+        long value = 0;
+        for (int i = starts[token]; i < starts[token] + lengths[token]; i++) {
+            value = value * 10 + (chars[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return Integer.parseInt(text(token));  // throws the usual NumberFormatException
+            }
+        }
+        return (int) value;
+    }
+
+    /***************/
+    /* The edits   */
+    /***************/
+
+    /* Updates the tokens for the edited source, in which the removed chars at offset were replaced with the inserted
+     * ones. The tokens are lexed again from the last separator (";", "{" or "}") that ends before the edit, as the
+     * tokens before it never look past it, and up to the first separator after the edit that starts where an old
+     * separator started (shifted by the edit): the tokens after it are the old ones, shifted. An unterminated comment
+     * is the one exception, as the lexer looks for its end as far as the end of the source: when an error token
+     * (the "/" of such a comment) comes before the edit, the whole source is lexed again. */
+    public void edit(SourceBuffer edited, int offset, int removed, int inserted) {
+        // From the last token that starts before the edit
+        int restart = Arrays.binarySearch(starts, 0, size, offset);
+        restart = restart >= 0 ? restart - 1 : -restart - 2;
+        while (restart >= 0 && !(SEPARATOR[kinds[restart]] && starts[restart] + lengths[restart] <= offset)) {
+            restart--;
+        }
+        for (int i = 0; illegals > 0 && i < restart; i++) {
+            if (kinds[i] == sym.error) {
+                restart = -1;
+                break;
+            }
+        }
+
+        if (lineTable != null) {
+            lineTable.edit(edited.chars(), edited.length, offset, removed, inserted);
+        }
+
+        // The tokens from the restart on, lexed in a buffer of their own and then spliced into this one
+        var relexed = new TokenBuffer(edited, plainTokens, lineTable, 64);
+        int delta = inserted - removed;
+        int resynced;
+        if (restart < 0) {
+            resynced = relexed.lex(0, 1, 0, offset + inserted, this, delta);
+        } else {
+            // A separator is a single char, so the chars after it start on its line, at the next column
+            int line = lineTable != null ? 1 : lines[restart];
+            int column = lineTable != null ? 0 : columns[restart] + 1;
+            resynced = relexed.lex(starts[restart] + 1, line, column, offset + inserted, this, delta);
+        }
+
+        int prefix = restart + 1;
+        int tail = resynced < 0 ? 0 : size - resynced - 1;
+        for (int i = prefix; i < size - tail; i++) {
+            if (kinds[i] == sym.error) {
+                illegals--;
+            }
+        }
+        illegals += relexed.illegals;
+
+        int newSize = prefix + relexed.size + tail;
+        if (newSize > kinds.length) {
+            grow(newSize);
+        }
+        if (resynced >= 0) {
+            // The separator where the lexer resynchronized is the last relexed token
+            int last = relexed.size - 1;
+            int resyncLine = lineTable != null ? 0 : lines[resynced];
+            int lineDelta = lineTable != null ? 0 : relexed.lines[last] - resyncLine;
+            int columnDelta = lineTable != null ? 0 : relexed.columns[last] - columns[resynced];
+
+            int to = prefix + relexed.size;
+            if (to != resynced + 1) {
+                System.arraycopy(kinds, resynced + 1, kinds, to, tail);
+                System.arraycopy(starts, resynced + 1, starts, to, tail);
+                System.arraycopy(lengths, resynced + 1, lengths, to, tail);
+                if (lineTable == null) {
+                    System.arraycopy(lines, resynced + 1, lines, to, tail);
+                    System.arraycopy(columns, resynced + 1, columns, to, tail);
+                }
+            }
+            for (int i = to; delta != 0 && i < to + tail; i++) {
+                starts[i] += delta;
+            }
+            // (in the lazy lines mode, the line table is already up to date)
+            if (lineTable == null) {
+                // Only the rest of the line of the separator moved sideways, which the tail starts with
+                for (int i = to; columnDelta != 0 && i < to + tail && lines[i] == resyncLine; i++) {
+                    columns[i] += columnDelta;
+                }
+                for (int i = to; lineDelta != 0 && i < to + tail; i++) {
+                    lines[i] += lineDelta;
+                }
+            }
+        }
+        System.arraycopy(relexed.kinds, 0, kinds, prefix, relexed.size);
+        System.arraycopy(relexed.starts, 0, starts, prefix, relexed.size);
+        System.arraycopy(relexed.lengths, 0, lengths, prefix, relexed.size);
+        if (lineTable == null) {
+            System.arraycopy(relexed.lines, 0, lines, prefix, relexed.size);
+            System.arraycopy(relexed.columns, 0, columns, prefix, relexed.size);
+        }
+        size = newSize;
+        chars = edited.chars();
+        length = edited.length;
+    }
+
+    /* Lexes the chars from offset (at the given line and column) into this buffer, up to the EOF, or up to the first
+     * separator at or after resyncOffset that starts where a separator of old started, shifted by delta. Returns the
+     * index of that separator in old, or -1 when lexed up to the EOF. */
+    private int lex(int offset, int line, int column, int resyncOffset, TokenBuffer old, int delta) {
+        // A reader, so that the lexer copies no more of the chars than it scans (nor moves them, see SourceBuffer)
+        var reader = new CharArrayReader(chars, offset, length - offset);
+        TokenScanner lexer = lineTable != null ? new OffsetLexer(reader) : new Lexer(reader);
+        lexer.reuseSymbols();
+        if (plainTokens) {
+            lexer.plainTokens();
+        }
+        lexer.startAt(line, column);
+
+        Symbol token;
+        do {
+            try {
+                token = lexer.next_token();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int start = offset + lexer.getCharOffset();
+            if (lineTable != null) {
+                add(token.sym, start, lexer.yylength(), 0, 0);
+            } else {
+                add(token.sym, start, lexer.yylength(), lexer.getLine(), lexer.getCharPos());
+            }
+
+            if (old != null && start >= resyncOffset && SEPARATOR[token.sym]) {
+                int resynced = Arrays.binarySearch(old.starts, 0, old.size, start - delta);
+                if (resynced >= 0 && old.kinds[resynced] == token.sym) {
+                    return resynced;
+                }
+            }
+        } while (token.sym != sym.EOF);
+        return -1;
+    }
+
+    private void add(int kind, int start, int length, int line, int column) {
+        if (size == kinds.length) {
+            grow(2 * size);
+        }
+        if (kind == sym.error) {
+            illegals++;
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = length;
+        if (lineTable == null) {
+            lines[size] = line;
+            columns[size] = column;
+        }
+        size++;
+    }
+
+    private void grow(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        if (lineTable == null) {
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import java_cup.runtime.Symbol;
+
+import java.io.IOException;
+
+public interface TokenScanner {
+    /* The operations of the generated lexers that TokenBuffer scans with: Lexer, and OffsetLexer (generated from the
+     * same spec without %line and %column, see build.xml), whose lines and columns are always those of the start */
+
+    Symbol next_token() throws IOException;
+
+    int yylength();
+
+    int getCharOffset();
+
+    int getLine();
+
+    int getCharPos();
+
+    void startAt(int line, int column);
+
+    void plainTokens();
+
+    void reuseSymbols();
+}
@@ -14,4 +14,9 @@ public class AddExpr extends BinaryExpr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
 }
@@ -22,6 +22,11 @@ public class ArrayAccessExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public Expr arrayExpr() {
         return arrayExpr.e;
     }
@@ -1,10 +1,14 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 
 public class AssignArrayStatement extends Statement {
     @XmlElement(required = true)
     private String lv;
+
+    // The interned symbol of lv (see SymbolTable), set along with it
+    private int lvSymbol = SymbolTable.NONE;
     @XmlElement(required = true)
     private ExprWrapper index;
     @XmlElement(required = true)
@@ -14,8 +18,18 @@ public class AssignArrayStatement extends Statement {
     public AssignArrayStatement() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        lvSymbol = SymbolTable.intern(lv);
+    }
+
     public AssignArrayStatement(String lv, Expr index, Expr rv) {
-        this.lv = lv;
+        this(SymbolTable.identifier(lv), index, rv);
+    }
+
+    public AssignArrayStatement(Identifier lv, Expr index, Expr rv) {
+        this.lv = lv.name;
+        this.lvSymbol = lv.symbol;
         this.index = new ExprWrapper(index);
         this.rv = new ExprWrapper(rv);
     }
@@ -25,12 +39,22 @@ public class AssignArrayStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String lv() {
         return lv;
     }
 
+    public int lvSymbol() {
+        return lvSymbol;
+    }
+
     public void setLv(String lv) {
         this.lv = lv;
+        this.lvSymbol = SymbolTable.intern(lv);
     }
 
     public Expr index() {
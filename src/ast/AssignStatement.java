@@ -1,10 +1,14 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 
 public class AssignStatement extends Statement {
     @XmlElement(required = true)
     private String lv;
+
+    // The interned symbol of lv (see SymbolTable), set along with it
+    private int lvSymbol = SymbolTable.NONE;
     @XmlElement(required = true)
     private ExprWrapper rv;
 
@@ -12,8 +16,18 @@ public class AssignStatement extends Statement {
     public AssignStatement() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        lvSymbol = SymbolTable.intern(lv);
+    }
+
     public AssignStatement(String lv, Expr rv) {
-        this.lv = lv;
+        this(SymbolTable.identifier(lv), rv);
+    }
+
+    public AssignStatement(Identifier lv, Expr rv) {
+        this.lv = lv.name;
+        this.lvSymbol = lv.symbol;
         this.rv = new ExprWrapper(rv);
     }
 
@@ -22,12 +36,22 @@ public class AssignStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String lv() {
         return lv;
     }
 
+    public int lvSymbol() {
+        return lvSymbol;
+    }
+
     public void setLv(String lv) {
         this.lv = lv;
+        this.lvSymbol = SymbolTable.intern(lv);
     }
 
     public Expr rv() {
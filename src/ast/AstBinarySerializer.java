@@ -0,0 +1,606 @@
+package ast;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AstBinarySerializer implements AstSerializer {
+    /* A compact binary format of the AST:
+     *      magic ("MJAST"), format version (byte)
+     *      string table: count, then the UTF-8 bytes of every string, each preceded by its length
+     *      the nodes, in pre-order
+     * Every node is a record of its tag, its lineNumber (0 for none, lineNumber + 1 otherwise) and then its
+     * properties, in the order of the XML format: a child node is a nested record (tag 0 for a missing one), a list
+     * is its size + 1 (0 for a missing one) followed by its elements, a string is its index in the table + 1 (0 for
+     * null), and the number of an integer literal is zigzag encoded. All the integers are unsigned LEB128 varints.
+     * The round trip with the XML format is exact, including the line numbers of all the nodes. */
+
+    private static final byte[] MAGIC = "MJAST".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int PROGRAM = 1;
+    private static final int MAIN_CLASS = 2;
+    private static final int CLASS_DECL = 3;
+    private static final int METHOD_DECL = 4;
+    private static final int FORMAL_ARG = 5;
+    private static final int VAR_DECL = 6;
+    private static final int BLOCK = 7;
+    private static final int IF = 8;
+    private static final int WHILE = 9;
+    private static final int SYSOUT = 10;
+    private static final int ASSIGN = 11;
+    private static final int ASSIGN_ARRAY = 12;
+    private static final int AND = 13;
+    private static final int LT = 14;
+    private static final int ADD = 15;
+    private static final int SUBTRACT = 16;
+    private static final int MULT = 17;
+    private static final int ARRAY_ACCESS = 18;
+    private static final int ARRAY_LENGTH = 19;
+    private static final int CALL = 20;
+    private static final int INT_LITERAL = 21;
+    private static final int TRUE = 22;
+    private static final int FALSE = 23;
+    private static final int REF_ID = 24;
+    private static final int THIS = 25;
+    private static final int NEW_INT_ARRAY = 26;
+    private static final int NEW_OBJECT = 27;
+    private static final int NOT = 28;
+    private static final int INT_TYPE = 29;
+    private static final int BOOL_TYPE = 30;
+    private static final int INT_ARRAY_TYPE = 31;
+    private static final int REF_TYPE = 32;
+
+    @Override
+    public void serialize(AstNode ast, OutputStream out) throws IOException {
+        var writer = new BinaryWriteVisitor();
+        ast.accept(writer);
+
+        var header = new VarIntOutputStream();
+        header.write(MAGIC);
+        header.write(VERSION);
+        header.writeVarInt(writer.strings.size());
+        for (String str : writer.strings) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            header.writeVarInt(bytes.length);
+            header.write(bytes);
+        }
+
+        header.writeTo(out);
+        writer.nodes.writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public Program deserialize(InputStream in) throws IOException {
+        return new Reader(ByteBuffer.wrap(in.readAllBytes())).readProgram();
+    }
+
+    /* Loads the file through a memory mapping, so the nodes are decoded straight from the page cache */
+    @Override
+    public Program deserialize(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Reader(buffer).readProgram();
+        }
+    }
+
+    private static class VarIntOutputStream extends ByteArrayOutputStream {
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+
+    private static class BinaryWriteVisitor implements Visitor {
+        final VarIntOutputStream nodes = new VarIntOutputStream();
+        final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndices = new HashMap<>();
+
+        private void string(String str) {
+            if (str == null) {
+                nodes.writeVarInt(0);
+                return;
+            }
+            Integer index = stringIndices.get(str);
+            if (index == null) {
+                index = strings.size();
+                strings.add(str);
+                stringIndices.put(str, index);
+            }
+            nodes.writeVarInt(index + 1);
+        }
+
+        private void header(int tag, AstNode node) {
+            nodes.writeVarInt(tag);
+            nodes.writeVarInt(node.lineNumber == null ? 0 : node.lineNumber + 1);
+        }
+
+        private void child(AstNode node) {
+            if (node == null) {
+                nodes.writeVarInt(NULL);
+            } else {
+                node.accept(this);
+            }
+        }
+
+        private void list(List<? extends AstNode> list) {
+            if (list == null) {
+                nodes.writeVarInt(0);
+                return;
+            }
+            nodes.writeVarInt(list.size() + 1);
+            for (AstNode node : list) {
+                child(node);
+            }
+        }
+
+        private void variableIntroduction(int tag, VariableIntroduction variable) {
+            header(tag, variable);
+            child(variable.type());
+            string(variable.name());
+        }
+
+        private void binaryExpr(int tag, BinaryExpr e) {
+            header(tag, e);
+            child(e.e1());
+            child(e.e2());
+        }
+
+        @Override
+        public void visit(Program program) {
+            header(PROGRAM, program);
+            child(program.mainClass());
+            list(program.classDecls());
+        }
+
+        @Override
+        public void visit(ClassDecl classDecl) {
+            header(CLASS_DECL, classDecl);
+            string(classDecl.name());
+            string(classDecl.superName());
+            list(classDecl.fields());
+            list(classDecl.methoddecls());
+        }
+
+        @Override
+        public void visit(MainClass mainClass) {
+            header(MAIN_CLASS, mainClass);
+            string(mainClass.name());
+            string(mainClass.argsName());
+            child(mainClass.mainStatement());
+        }
+
+        @Override
+        public void visit(MethodDecl methodDecl) {
+            header(METHOD_DECL, methodDecl);
+            child(methodDecl.returnType());
+            string(methodDecl.name());
+            list(methodDecl.formals());
+            list(methodDecl.vardecls());
+            list(methodDecl.body());
+            child(methodDecl.ret());
+        }
+
+        @Override
+        public void visit(FormalArg formalArg) {
+            variableIntroduction(FORMAL_ARG, formalArg);
+        }
+
+        @Override
+        public void visit(VarDecl varDecl) {
+            variableIntroduction(VAR_DECL, varDecl);
+        }
+
+        @Override
+        public void visit(BlockStatement blockStatement) {
+            header(BLOCK, blockStatement);
+            list(blockStatement.statements());
+        }
+
+        @Override
+        public void visit(IfStatement ifStatement) {
+            header(IF, ifStatement);
+            child(ifStatement.cond());
+            child(ifStatement.thencase());
+            child(ifStatement.elsecase());
+        }
+
+        @Override
+        public void visit(WhileStatement whileStatement) {
+            header(WHILE, whileStatement);
+            child(whileStatement.cond());
+            child(whileStatement.body());
+        }
+
+        @Override
+        public void visit(SysoutStatement sysoutStatement) {
+            header(SYSOUT, sysoutStatement);
+            child(sysoutStatement.arg());
+        }
+
+        @Override
+        public void visit(AssignStatement assignStatement) {
+            header(ASSIGN, assignStatement);
+            string(assignStatement.lv());
+            child(assignStatement.rv());
+        }
+
+        @Override
+        public void visit(AssignArrayStatement assignArrayStatement) {
+            header(ASSIGN_ARRAY, assignArrayStatement);
+            string(assignArrayStatement.lv());
+            child(assignArrayStatement.index());
+            child(assignArrayStatement.rv());
+        }
+
+        @Override
+        public void visit(AndExpr e) {
+            binaryExpr(AND, e);
+        }
+
+        @Override
+        public void visit(LtExpr e) {
+            binaryExpr(LT, e);
+        }
+
+        @Override
+        public void visit(AddExpr e) {
+            binaryExpr(ADD, e);
+        }
+
+        @Override
+        public void visit(SubtractExpr e) {
+            binaryExpr(SUBTRACT, e);
+        }
+
+        @Override
+        public void visit(MultExpr e) {
+            binaryExpr(MULT, e);
+        }
+
+        @Override
+        public void visit(ArrayAccessExpr e) {
+            header(ARRAY_ACCESS, e);
+            child(e.arrayExpr());
+            child(e.indexExpr());
+        }
+
+        @Override
+        public void visit(ArrayLengthExpr e) {
+            header(ARRAY_LENGTH, e);
+            child(e.arrayExpr());
+        }
+
+        @Override
+        public void visit(MethodCallExpr e) {
+            header(CALL, e);
+            child(e.ownerExpr());
+            string(e.methodId());
+            list(e.actuals());
+        }
+
+        @Override
+        public void visit(IntegerLiteralExpr e) {
+            header(INT_LITERAL, e);
+            nodes.writeVarInt((e.num() << 1) ^ (e.num() >> 31));
+        }
+
+        @Override
+        public void visit(TrueExpr e) {
+            header(TRUE, e);
+        }
+
+        @Override
+        public void visit(FalseExpr e) {
+            header(FALSE, e);
+        }
+
+        @Override
+        public void visit(IdentifierExpr e) {
+            header(REF_ID, e);
+            string(e.id());
+        }
+
+        @Override
+        public void visit(ThisExpr e) {
+            header(THIS, e);
+        }
+
+        @Override
+        public void visit(NewIntArrayExpr e) {
+            header(NEW_INT_ARRAY, e);
+            child(e.lengthExpr());
+        }
+
+        @Override
+        public void visit(NewObjectExpr e) {
+            header(NEW_OBJECT, e);
+            string(e.classId());
+        }
+
+        @Override
+        public void visit(NotExpr e) {
+            header(NOT, e);
+            child(e.e());
+        }
+
+        @Override
+        public void visit(IntAstType t) {
+            header(INT_TYPE, t);
+        }
+
+        @Override
+        public void visit(BoolAstType t) {
+            header(BOOL_TYPE, t);
+        }
+
+        @Override
+        public void visit(IntArrayAstType t) {
+            header(INT_ARRAY_TYPE, t);
+        }
+
+        @Override
+        public void visit(RefType t) {
+            header(REF_TYPE, t);
+            string(t.id());
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private String[] strings;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        private String readString() {
+            int index = readVarInt();
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        private Integer readLineNumber() {
+            int lineNumber = readVarInt();
+            return lineNumber == 0 ? null : lineNumber - 1;
+        }
+
+        private <T extends AstNode> T withLineNumber(T node, Integer lineNumber) {
+            node.lineNumber = lineNumber;
+            return node;
+        }
+
+        Program readProgram() throws IOException {
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IOException("not a binary AST file");
+                }
+            }
+            if (buffer.get() != VERSION) {
+                throw new IOException("unsupported binary AST version");
+            }
+
+            strings = new String[readVarInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            AstNode program = readNode();
+            if (!(program instanceof Program)) {
+                throw new IOException("the root of a binary AST file must be a program");
+            }
+            return (Program) program;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends AstNode> List<T> readList() throws IOException {
+            int size = readVarInt();
+            if (size == 0) {
+                return null;
+            }
+            List<T> list = new ArrayList<>(size - 1);
+            for (int i = 0; i < size - 1; i++) {
+                list.add((T) readNode());
+            }
+            return list;
+        }
+
+        private Expr readExpr() throws IOException {
+            return (Expr) readNode();
+        }
+
+        private Statement readStatement() throws IOException {
+            return (Statement) readNode();
+        }
+
+        private AstType readType() throws IOException {
+            return (AstType) readNode();
+        }
+
+        private AstNode readNode() throws IOException {
+            int tag = readVarInt();
+            if (tag == NULL) {
+                return null;
+            }
+            Integer lineNumber = readLineNumber();
+
+            AstNode node;
+            switch (tag) {
+                case PROGRAM: {
+                    MainClass mainClass = (MainClass) readNode();
+                    List<ClassDecl> classDecls = readList();
+                    node = new Program(mainClass, classDecls);
+                    break;
+                }
+                case MAIN_CLASS: {
+                    String name = readString();
+                    String argsName = readString();
+                    node = new MainClass(name, argsName, readStatement());
+                    break;
+                }
+                case CLASS_DECL: {
+                    String name = readString();
+                    String superName = readString();
+                    List<VarDecl> fields = readList();
+                    List<MethodDecl> methodDecls = readList();
+                    node = new ClassDecl(name, superName, fields, methodDecls);
+                    break;
+                }
+                case METHOD_DECL: {
+                    AstType returnType = readType();
+                    String name = readString();
+                    List<FormalArg> formals = readList();
+                    List<VarDecl> varDecls = readList();
+                    List<Statement> body = readList();
+                    Expr ret = readExpr();
+                    node = new MethodDecl(returnType, name, formals, varDecls, body, ret, 0);
+                    break;
+                }
+                case FORMAL_ARG: {
+                    AstType type = readType();
+                    node = new FormalArg(type, readString(), 0);
+                    break;
+                }
+                case VAR_DECL: {
+                    AstType type = readType();
+                    node = new VarDecl(type, readString(), 0);
+                    break;
+                }
+                case BLOCK:
+                    node = new BlockStatement(readList());
+                    break;
+                case IF: {
+                    Expr cond = readExpr();
+                    Statement thencase = readStatement();
+                    Statement elsecase = readStatement();
+                    node = new IfStatement(cond, thencase, elsecase);
+                    break;
+                }
+                case WHILE: {
+                    Expr cond = readExpr();
+                    node = new WhileStatement(cond, readStatement());
+                    break;
+                }
+                case SYSOUT:
+                    node = new SysoutStatement(readExpr());
+                    break;
+                case ASSIGN: {
+                    String lv = readString();
+                    node = new AssignStatement(lv, readExpr());
+                    break;
+                }
+                case ASSIGN_ARRAY: {
+                    String lv = readString();
+                    Expr index = readExpr();
+                    node = new AssignArrayStatement(lv, index, readExpr());
+                    break;
+                }
+                case AND: {
+                    Expr e1 = readExpr();
+                    node = new AndExpr(e1, readExpr());
+                    break;
+                }
+                case LT: {
+                    Expr e1 = readExpr();
+                    node = new LtExpr(e1, readExpr());
+                    break;
+                }
+                case ADD: {
+                    Expr e1 = readExpr();
+                    node = new AddExpr(e1, readExpr());
+                    break;
+                }
+                case SUBTRACT: {
+                    Expr e1 = readExpr();
+                    node = new SubtractExpr(e1, readExpr());
+                    break;
+                }
+                case MULT: {
+                    Expr e1 = readExpr();
+                    node = new MultExpr(e1, readExpr());
+                    break;
+                }
+                case ARRAY_ACCESS: {
+                    Expr arrayExpr = readExpr();
+                    node = new ArrayAccessExpr(arrayExpr, readExpr());
+                    break;
+                }
+                case ARRAY_LENGTH:
+                    node = new ArrayLengthExpr(readExpr());
+                    break;
+                case CALL: {
+                    Expr ownerExpr = readExpr();
+                    String methodId = readString();
+                    List<Expr> actuals = readList();
+                    node = new MethodCallExpr(ownerExpr, methodId, actuals);
+                    break;
+                }
+                case INT_LITERAL: {
+                    int zigzag = readVarInt();
+                    node = new IntegerLiteralExpr((zigzag >>> 1) ^ -(zigzag & 1));
+                    break;
+                }
+                case TRUE:
+                    node = new TrueExpr();
+                    break;
+                case FALSE:
+                    node = new FalseExpr();
+                    break;
+                case REF_ID:
+                    node = new IdentifierExpr(readString());
+                    break;
+                case THIS:
+                    node = new ThisExpr();
+                    break;
+                case NEW_INT_ARRAY:
+                    node = new NewIntArrayExpr(readExpr());
+                    break;
+                case NEW_OBJECT:
+                    node = new NewObjectExpr(readString());
+                    break;
+                case NOT:
+                    node = new NotExpr(readExpr());
+                    break;
+                case INT_TYPE:
+                    node = new IntAstType();
+                    break;
+                case BOOL_TYPE:
+                    node = new BoolAstType();
+                    break;
+                case INT_ARRAY_TYPE:
+                    node = new IntArrayAstType();
+                    break;
+                case REF_TYPE:
+                    node = new RefType(readString());
+                    break;
+                default:
+                    throw new IOException("unknown node tag " + tag + " at offset " + buffer.position());
+            }
+            return withLineNumber(node, lineNumber);
+        }
+    }
+}
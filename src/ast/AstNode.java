@@ -1,6 +1,9 @@
 package ast;
 
 import javax.xml.bind.annotation.XmlElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
 
 public abstract class AstNode {
     @XmlElement(required = false)
@@ -15,4 +18,12 @@ public abstract class AstNode {
     }
 
     abstract public void accept(Visitor v);
+
+    abstract public <R, C> R accept(ResultVisitor<R, C> v, C context);
+
+    /* The lists of the nodes are read by index (see e.g. BlockStatement.statement), so the linked lists that the LALR
+     * parser builds are copied into array lists */
+    static <T> List<T> indexed(List<T> list) {
+        return list == null || list instanceof RandomAccess ? list : new ArrayList<>(list);
+    }
 }
@@ -0,0 +1,249 @@
+package ast;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class AstNodeCountVisitor implements Visitor {
+    private int total = 0;
+    // The number of nodes of each NodeKind, counted with no allocation (see getCountsByKind)
+    private final int[] counts = new int[NodeKind.COUNT];
+
+    public int getTotal() {
+        return total;
+    }
+
+    // The number of nodes of each node class, sorted by the class name
+    public Map<String, Integer> getCountsByKind() {
+        Map<String, Integer> countsByKind = new TreeMap<>();
+        for (int kind = 0; kind < counts.length; kind++) {
+            if (counts[kind] > 0) {
+                countsByKind.put(NodeKind.name(kind), counts[kind]);
+            }
+        }
+        return countsByKind;
+    }
+
+    protected void count(int kind) {
+        total++;
+        counts[kind]++;
+    }
+
+    private void visitBinaryExpr(int kind, BinaryExpr e) {
+        count(kind);
+        e.e1().accept(this);
+        e.e2().accept(this);
+    }
+
+    @Override
+    public void visit(Program program) {
+        count(NodeKind.PROGRAM);
+        program.mainClass().accept(this);
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            ClassDecl classdecl = program.classDecl(i);
+            classdecl.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(ClassDecl classDecl) {
+        count(NodeKind.CLASS_DECL);
+        for (int i = 0; i < classDecl.fieldCount(); i++) {
+            var fieldDecl = classDecl.field(i);
+            fieldDecl.accept(this);
+        }
+        for (int i = 0; i < classDecl.methodDeclCount(); i++) {
+            var methodDecl = classDecl.methodDecl(i);
+            methodDecl.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(MainClass mainClass) {
+        count(NodeKind.MAIN_CLASS);
+        mainClass.mainStatement().accept(this);
+    }
+
+    @Override
+    public void visit(MethodDecl methodDecl) {
+        count(NodeKind.METHOD_DECL);
+        methodDecl.returnType().accept(this);
+        for (int i = 0; i < methodDecl.formalCount(); i++) {
+            var formal = methodDecl.formal(i);
+            formal.accept(this);
+        }
+        for (int i = 0; i < methodDecl.varDeclCount(); i++) {
+            var varDecl = methodDecl.varDecl(i);
+            varDecl.accept(this);
+        }
+        for (int i = 0; i < methodDecl.statementCount(); i++) {
+            var stmt = methodDecl.statement(i);
+            stmt.accept(this);
+        }
+        methodDecl.ret().accept(this);
+    }
+
+    @Override
+    public void visit(FormalArg formalArg) {
+        count(NodeKind.FORMAL_ARG);
+        formalArg.type().accept(this);
+    }
+
+    @Override
+    public void visit(VarDecl varDecl) {
+        count(NodeKind.VAR_DECL);
+        varDecl.type().accept(this);
+    }
+
+    @Override
+    public void visit(BlockStatement blockStatement) {
+        count(NodeKind.BLOCK);
+        for (int i = 0; i < blockStatement.statementCount(); i++) {
+            var s = blockStatement.statement(i);
+            s.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IfStatement ifStatement) {
+        count(NodeKind.IF);
+        ifStatement.cond().accept(this);
+        ifStatement.thencase().accept(this);
+        ifStatement.elsecase().accept(this);
+    }
+
+    @Override
+    public void visit(WhileStatement whileStatement) {
+        count(NodeKind.WHILE);
+        whileStatement.cond().accept(this);
+        whileStatement.body().accept(this);
+    }
+
+    @Override
+    public void visit(SysoutStatement sysoutStatement) {
+        count(NodeKind.SYSOUT);
+        sysoutStatement.arg().accept(this);
+    }
+
+    @Override
+    public void visit(AssignStatement assignStatement) {
+        count(NodeKind.ASSIGN);
+        assignStatement.rv().accept(this);
+    }
+
+    @Override
+    public void visit(AssignArrayStatement assignArrayStatement) {
+        count(NodeKind.ASSIGN_ARRAY);
+        assignArrayStatement.index().accept(this);
+        assignArrayStatement.rv().accept(this);
+    }
+
+    @Override
+    public void visit(AndExpr e) {
+        visitBinaryExpr(NodeKind.AND, e);
+    }
+
+    @Override
+    public void visit(LtExpr e) {
+        visitBinaryExpr(NodeKind.LT, e);
+    }
+
+    @Override
+    public void visit(AddExpr e) {
+        visitBinaryExpr(NodeKind.ADD, e);
+    }
+
+    @Override
+    public void visit(SubtractExpr e) {
+        visitBinaryExpr(NodeKind.SUBTRACT, e);
+    }
+
+    @Override
+    public void visit(MultExpr e) {
+        visitBinaryExpr(NodeKind.MULT, e);
+    }
+
+    @Override
+    public void visit(ArrayAccessExpr e) {
+        count(NodeKind.ARRAY_ACCESS);
+        e.arrayExpr().accept(this);
+        e.indexExpr().accept(this);
+    }
+
+    @Override
+    public void visit(ArrayLengthExpr e) {
+        count(NodeKind.ARRAY_LENGTH);
+        e.arrayExpr().accept(this);
+    }
+
+    @Override
+    public void visit(MethodCallExpr e) {
+        count(NodeKind.CALL);
+        e.ownerExpr().accept(this);
+        for (int i = 0; i < e.actualCount(); i++) {
+            Expr arg = e.actual(i);
+            arg.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr e) {
+        count(NodeKind.INT_LITERAL);
+    }
+
+    @Override
+    public void visit(TrueExpr e) {
+        count(NodeKind.TRUE);
+    }
+
+    @Override
+    public void visit(FalseExpr e) {
+        count(NodeKind.FALSE);
+    }
+
+    @Override
+    public void visit(IdentifierExpr e) {
+        count(NodeKind.REF_ID);
+    }
+
+    @Override
+    public void visit(ThisExpr e) {
+        count(NodeKind.THIS);
+    }
+
+    @Override
+    public void visit(NewIntArrayExpr e) {
+        count(NodeKind.NEW_INT_ARRAY);
+        e.lengthExpr().accept(this);
+    }
+
+    @Override
+    public void visit(NewObjectExpr e) {
+        count(NodeKind.NEW_OBJECT);
+    }
+
+    @Override
+    public void visit(NotExpr e) {
+        count(NodeKind.NOT);
+        e.e().accept(this);
+    }
+
+    @Override
+    public void visit(IntAstType t) {
+        count(NodeKind.INT_TYPE);
+    }
+
+    @Override
+    public void visit(BoolAstType t) {
+        count(NodeKind.BOOL_TYPE);
+    }
+
+    @Override
+    public void visit(IntArrayAstType t) {
+        count(NodeKind.INT_ARRAY_TYPE);
+    }
+
+    @Override
+    public void visit(RefType t) {
+        count(NodeKind.REF_TYPE);
+    }
+}
@@ -0,0 +1,22 @@
+package ast;
+
+import java.io.*;
+
+// A file format of the AST, for the marshal / unmarshal command line actions
+public interface AstSerializer {
+    void serialize(AstNode ast, OutputStream out) throws IOException;
+
+    Program deserialize(InputStream in) throws IOException;
+
+    default void serialize(AstNode ast, String outfilename) throws IOException {
+        try (var out = new BufferedOutputStream(new FileOutputStream(outfilename))) {
+            serialize(ast, out);
+        }
+    }
+
+    default Program deserialize(File file) throws IOException {
+        try (var in = new BufferedInputStream(new FileInputStream(file))) {
+            return deserialize(in);
+        }
+    }
+}
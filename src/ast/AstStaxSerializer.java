@@ -0,0 +1,827 @@
+package ast;
+
+import javax.xml.stream.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AstStaxSerializer implements AstSerializer {
+    /* A hand written codec of the XML format of the AST (schema/ast.xsd), over the StAX streaming API.
+     * The output is byte identical to the formatted output of the JAXB marshaller (AstXMLSerializer): the same
+     * header, one element per line, and an indentation of 4 spaces per level which wraps around every 8 levels.
+     * The reader builds the nodes directly through their constructors, and expects the elements in the order the
+     * marshaller writes them. */
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    // A line break followed by the indentation of each level (the first line of the document has no line break)
+    private static final String[] LINE_STARTS = new String[8];
+
+    static {
+        for (int i = 0; i < LINE_STARTS.length; i++) {
+            LINE_STARTS[i] = "\n" + "    ".repeat(i);
+        }
+    }
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    @Override
+    public void serialize(AstNode ast, OutputStream out) throws IOException {
+        var outWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        outWriter.write(HEADER);
+        try {
+            XMLStreamWriter xml = outputFactory.createXMLStreamWriter(outWriter);
+            var writer = new XMLWriteVisitor(xml);
+            ast.accept(writer);
+            writer.check();
+            xml.writeCharacters("\n");
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        outWriter.flush();
+    }
+
+    @Override
+    public Program deserialize(InputStream in) throws IOException {
+        try {
+            XMLStreamReader xml = inputFactory.createXMLStreamReader(in);
+            try {
+                return new Reader(xml).readProgram();
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /* Writes the XML of a program as its declarations are parsed (see ProgramSink), byte identical to serialize, so
+     * that only the declaration being written is held in memory instead of the whole AST. The parsers give the
+     * program itself no line number, so its element is opened with the main class, and closed by end. */
+    public static class ProgramStreamWriter implements ProgramSink {
+        private final BufferedWriter outWriter;
+        private final XMLStreamWriter xml;
+        private final XMLWriteVisitor writer;
+        private int classDecls = 0;
+
+        public ProgramStreamWriter(OutputStream out) throws IOException {
+            outWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            outWriter.write(HEADER);
+            try {
+                xml = outputFactory.createXMLStreamWriter(outWriter);
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            writer = new XMLWriteVisitor(xml);
+        }
+
+        @Override
+        public void mainClass(MainClass mainClass) {
+            writer.open("program");
+            writer.wrapped("mainclass", mainClass);
+        }
+
+        @Override
+        public void classDecl(ClassDecl classDecl) {
+            if (classDecls++ == 0) {
+                writer.open("classdecls");
+            }
+            classDecl.accept(writer);
+        }
+
+        // Ends the document after the last class, and throws the first error of the writes
+        public void end() throws IOException {
+            if (classDecls == 0) {
+                writer.empty("classdecls");
+            } else {
+                writer.close();
+            }
+            writer.close();
+            try {
+                writer.check();
+                xml.writeCharacters("\n");
+                xml.flush();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            outWriter.flush();
+        }
+    }
+
+    private static class XMLWriteVisitor implements Visitor {
+        private final XMLStreamWriter xml;
+        private int depth = 0;
+        private boolean firstLine = true;
+        // The visitor methods can't throw a checked exception, so the first error is kept until check() is called
+        private XMLStreamException error;
+
+        XMLWriteVisitor(XMLStreamWriter xml) {
+            this.xml = xml;
+        }
+
+        void check() throws XMLStreamException {
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private void lineStart() throws XMLStreamException {
+            if (firstLine) {
+                firstLine = false;
+            } else {
+                xml.writeCharacters(LINE_STARTS[depth % LINE_STARTS.length]);
+            }
+        }
+
+        private void open(String name) {
+            try {
+                lineStart();
+                xml.writeStartElement(name);
+                depth++;
+            } catch (XMLStreamException e) {
+                error = e;
+            }
+        }
+
+        private void close() {
+            try {
+                depth--;
+                lineStart();
+                xml.writeEndElement();
+            } catch (XMLStreamException e) {
+                error = e;
+            }
+        }
+
+        private void empty(String name) {
+            try {
+                lineStart();
+                xml.writeEmptyElement(name);
+            } catch (XMLStreamException e) {
+                error = e;
+            }
+        }
+
+        private void text(String name, String value) {
+            if (value == null) {
+                return;
+            }
+            try {
+                lineStart();
+                xml.writeStartElement(name);
+                xml.writeCharacters(value);
+                xml.writeEndElement();
+            } catch (XMLStreamException e) {
+                error = e;
+            }
+        }
+
+        private void openNode(String name, AstNode node) {
+            open(name);
+            if (node.lineNumber != null) {
+                text("lineNumber", node.lineNumber.toString());
+            }
+        }
+
+        // A node without any properties of its own
+        private void leafNode(String name, AstNode node) {
+            if (node.lineNumber == null) {
+                empty(name);
+            } else {
+                openNode(name, node);
+                close();
+            }
+        }
+
+        private void wrapped(String name, AstNode node) {
+            if (node == null) {
+                // An empty wrapper, which is only unmarshalled from an invalid document
+                empty(name);
+                return;
+            }
+            open(name);
+            node.accept(this);
+            close();
+        }
+
+        private void list(String name, List<? extends AstNode> nodes) {
+            if (nodes.isEmpty()) {
+                empty(name);
+                return;
+            }
+            open(name);
+            for (AstNode node : nodes) {
+                node.accept(this);
+            }
+            close();
+        }
+
+        // A list whose elements are wrapped by an element of their own, such as the actuals of a call
+        private void wrappedList(String name, String elementName, List<? extends AstNode> nodes) {
+            if (nodes.isEmpty()) {
+                empty(name);
+                return;
+            }
+            open(name);
+            for (AstNode node : nodes) {
+                wrapped(elementName, node);
+            }
+            close();
+        }
+
+        private void variableIntroduction(String name, VariableIntroduction variable) {
+            openNode(name, variable);
+            wrapped("type", variable.type());
+            text("name", variable.name());
+            close();
+        }
+
+        private void binaryExpr(String name, BinaryExpr e) {
+            openNode(name, e);
+            wrapped("e1", e.e1());
+            wrapped("e2", e.e2());
+            close();
+        }
+
+        @Override
+        public void visit(Program program) {
+            openNode("program", program);
+            wrapped("mainclass", program.mainClass());
+            list("classdecls", program.classDecls());
+            close();
+        }
+
+        @Override
+        public void visit(ClassDecl classDecl) {
+            openNode("classdecl", classDecl);
+            text("name", classDecl.name());
+            text("superName", classDecl.superName());
+            wrappedFields(classDecl.fields());
+            list("methoddecls", classDecl.methoddecls());
+            close();
+        }
+
+        private void wrappedFields(List<VarDecl> fields) {
+            // Fields are var decls, which are named "field" inside of a class
+            if (fields.isEmpty()) {
+                empty("fields");
+                return;
+            }
+            open("fields");
+            for (VarDecl field : fields) {
+                variableIntroduction("field", field);
+            }
+            close();
+        }
+
+        @Override
+        public void visit(MainClass mainClass) {
+            /* The main class is written without an element of its own, as its only container (the program) names
+             * it "mainclass" */
+            if (mainClass.lineNumber != null) {
+                text("lineNumber", mainClass.lineNumber.toString());
+            }
+            text("name", mainClass.name());
+            text("argsName", mainClass.argsName());
+            wrapped("mainStatement", mainClass.mainStatement());
+        }
+
+        @Override
+        public void visit(MethodDecl methodDecl) {
+            openNode("methoddecl", methodDecl);
+            wrapped("returnType", methodDecl.returnType());
+            text("name", methodDecl.name());
+            list("formals", methodDecl.formals());
+            list("vardecls", methodDecl.vardecls());
+            list("body", methodDecl.body());
+            wrapped("ret", methodDecl.ret());
+            close();
+        }
+
+        @Override
+        public void visit(FormalArg formalArg) {
+            variableIntroduction("formal", formalArg);
+        }
+
+        @Override
+        public void visit(VarDecl varDecl) {
+            variableIntroduction("vardecl", varDecl);
+        }
+
+        @Override
+        public void visit(BlockStatement blockStatement) {
+            openNode("block", blockStatement);
+            list("statements", blockStatement.statements());
+            close();
+        }
+
+        @Override
+        public void visit(IfStatement ifStatement) {
+            openNode("if", ifStatement);
+            wrapped("cond", ifStatement.cond());
+            wrapped("thencase", ifStatement.thencase());
+            wrapped("elsecase", ifStatement.elsecase());
+            close();
+        }
+
+        @Override
+        public void visit(WhileStatement whileStatement) {
+            openNode("while", whileStatement);
+            wrapped("cond", whileStatement.cond());
+            wrapped("body", whileStatement.body());
+            close();
+        }
+
+        @Override
+        public void visit(SysoutStatement sysoutStatement) {
+            openNode("sysout", sysoutStatement);
+            wrapped("arg", sysoutStatement.arg());
+            close();
+        }
+
+        @Override
+        public void visit(AssignStatement assignStatement) {
+            openNode("assign", assignStatement);
+            text("lv", assignStatement.lv());
+            wrapped("rv", assignStatement.rv());
+            close();
+        }
+
+        @Override
+        public void visit(AssignArrayStatement assignArrayStatement) {
+            openNode("assign-array", assignArrayStatement);
+            text("lv", assignArrayStatement.lv());
+            wrapped("index", assignArrayStatement.index());
+            wrapped("rv", assignArrayStatement.rv());
+            close();
+        }
+
+        @Override
+        public void visit(AndExpr e) {
+            binaryExpr("and", e);
+        }
+
+        @Override
+        public void visit(LtExpr e) {
+            binaryExpr("lt", e);
+        }
+
+        @Override
+        public void visit(AddExpr e) {
+            binaryExpr("add", e);
+        }
+
+        @Override
+        public void visit(SubtractExpr e) {
+            binaryExpr("subtract", e);
+        }
+
+        @Override
+        public void visit(MultExpr e) {
+            binaryExpr("mult", e);
+        }
+
+        @Override
+        public void visit(ArrayAccessExpr e) {
+            openNode("array-access", e);
+            wrapped("arrayExpr", e.arrayExpr());
+            wrapped("indexExpr", e.indexExpr());
+            close();
+        }
+
+        @Override
+        public void visit(ArrayLengthExpr e) {
+            openNode("array-length", e);
+            wrapped("arrayExpr", e.arrayExpr());
+            close();
+        }
+
+        @Override
+        public void visit(MethodCallExpr e) {
+            openNode("call", e);
+            wrapped("ownerExpr", e.ownerExpr());
+            text("methodId", e.methodId());
+            wrappedList("actuals", "actual", e.actuals());
+            close();
+        }
+
+        @Override
+        public void visit(IntegerLiteralExpr e) {
+            openNode("int-literal", e);
+            text("num", Integer.toString(e.num()));
+            close();
+        }
+
+        @Override
+        public void visit(TrueExpr e) {
+            leafNode("true", e);
+        }
+
+        @Override
+        public void visit(FalseExpr e) {
+            leafNode("false", e);
+        }
+
+        @Override
+        public void visit(IdentifierExpr e) {
+            openNode("ref-id", e);
+            text("id", e.id());
+            close();
+        }
+
+        @Override
+        public void visit(ThisExpr e) {
+            leafNode("this", e);
+        }
+
+        @Override
+        public void visit(NewIntArrayExpr e) {
+            openNode("new-int-array", e);
+            wrapped("lengthExpr", e.lengthExpr());
+            close();
+        }
+
+        @Override
+        public void visit(NewObjectExpr e) {
+            openNode("new-object", e);
+            text("classId", e.classId());
+            close();
+        }
+
+        @Override
+        public void visit(NotExpr e) {
+            openNode("not", e);
+            wrapped("e", e.e());
+            close();
+        }
+
+        @Override
+        public void visit(IntAstType t) {
+            leafNode("int", t);
+        }
+
+        @Override
+        public void visit(BoolAstType t) {
+            leafNode("bool", t);
+        }
+
+        @Override
+        public void visit(IntArrayAstType t) {
+            leafNode("int-array", t);
+        }
+
+        @Override
+        public void visit(RefType t) {
+            openNode("ref", t);
+            text("id", t.id());
+            close();
+        }
+    }
+
+    private static class Reader {
+        /* Every read method starts on the START_ELEMENT event of its element, and ends on the event which follows
+         * the END_ELEMENT of its element (skipping whitespace) */
+
+        private final XMLStreamReader xml;
+
+        Reader(XMLStreamReader xml) {
+            this.xml = xml;
+        }
+
+        private void next() throws XMLStreamException {
+            // Like the JAXB unmarshaller, ignoring any text outside of the text only elements
+            int event;
+            do {
+                event = xml.next();
+            } while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT &&
+                    event != XMLStreamConstants.END_DOCUMENT);
+        }
+
+        private boolean isStart(String name) {
+            return xml.isStartElement() && xml.getLocalName().equals(name);
+        }
+
+        private void start(String name) throws XMLStreamException {
+            if (!isStart(name)) {
+                throw unexpected(name);
+            }
+            next();
+        }
+
+        private void end() throws XMLStreamException {
+            if (!xml.isEndElement()) {
+                throw unexpected("end of element");
+            }
+            next();
+        }
+
+        private XMLStreamException unexpected(String expected) {
+            String found = xml.isStartElement() ? "<" + xml.getLocalName() + ">" :
+                    xml.isEndElement() ? "</" + xml.getLocalName() + ">" : "event " + xml.getEventType();
+            return new XMLStreamException("expected " + expected + " but found " + found, xml.getLocation());
+        }
+
+        private String text(String name) throws XMLStreamException {
+            if (!isStart(name)) {
+                throw unexpected("<" + name + ">");
+            }
+            String text = xml.getElementText();
+            next();
+            return text;
+        }
+
+        private String optionalText(String name) throws XMLStreamException {
+            return isStart(name) ? text(name) : null;
+        }
+
+        private Integer lineNumber() throws XMLStreamException {
+            String lineNumber = optionalText("lineNumber");
+            return lineNumber == null ? null : Integer.valueOf(lineNumber.trim());
+        }
+
+        private <T extends AstNode> T withLineNumber(T node, Integer lineNumber) {
+            node.lineNumber = lineNumber;
+            return node;
+        }
+
+        Program readProgram() throws XMLStreamException {
+            next();
+            if (!isStart("program")) {
+                throw unexpected("<program>");
+            }
+            next();
+            Integer lineNumber = lineNumber();
+            start("mainclass");
+            MainClass mainClass = readMainClass();
+            end();
+
+            List<ClassDecl> classDecls = new ArrayList<>();
+            if (isStart("classdecls")) {
+                next();
+                while (isStart("classdecl")) {
+                    classDecls.add(readClassDecl());
+                }
+                end();
+            }
+
+            // The end of the program is the end of the document, so there is nothing to skip to
+            if (!xml.isEndElement()) {
+                throw unexpected("</program>");
+            }
+            return withLineNumber(new Program(mainClass, classDecls), lineNumber);
+        }
+
+        private MainClass readMainClass() throws XMLStreamException {
+            Integer lineNumber = lineNumber();
+            String name = text("name");
+            String argsName = text("argsName");
+            Statement mainStatement = readWrappedStatement("mainStatement");
+            return withLineNumber(new MainClass(name, argsName, mainStatement), lineNumber);
+        }
+
+        private ClassDecl readClassDecl() throws XMLStreamException {
+            next();
+            Integer lineNumber = lineNumber();
+            String name = text("name");
+            String superName = optionalText("superName");
+            List<VarDecl> fields = new ArrayList<>();
+            if (isStart("fields")) {
+                next();
+                while (isStart("field")) {
+                    fields.add(readVarDecl());
+                }
+                end();
+            }
+            List<MethodDecl> methodDecls = new ArrayList<>();
+            if (isStart("methoddecls")) {
+                next();
+                while (isStart("methoddecl")) {
+                    methodDecls.add(readMethodDecl());
+                }
+                end();
+            }
+            end();
+            return withLineNumber(new ClassDecl(name, superName, fields, methodDecls), lineNumber);
+        }
+
+        private MethodDecl readMethodDecl() throws XMLStreamException {
+            next();
+            Integer lineNumber = lineNumber();
+            AstType returnType = readWrappedType("returnType");
+            String name = text("name");
+            List<FormalArg> formals = new ArrayList<>();
+            if (isStart("formals")) {
+                next();
+                while (isStart("formal")) {
+                    formals.add(readFormalArg());
+                }
+                end();
+            }
+            List<VarDecl> varDecls = new ArrayList<>();
+            if (isStart("vardecls")) {
+                next();
+                while (isStart("vardecl")) {
+                    varDecls.add(readVarDecl());
+                }
+                end();
+            }
+            List<Statement> body = readStatementList("body");
+            Expr ret = readWrappedExpr("ret");
+            end();
+            return withLineNumber(new MethodDecl(returnType, name, formals, varDecls, body, ret, 0), lineNumber);
+        }
+
+        private FormalArg readFormalArg() throws XMLStreamException {
+            next();
+            Integer lineNumber = lineNumber();
+            AstType type = readWrappedType("type");
+            String name = text("name");
+            end();
+            return withLineNumber(new FormalArg(type, name, 0), lineNumber);
+        }
+
+        private VarDecl readVarDecl() throws XMLStreamException {
+            next();
+            Integer lineNumber = lineNumber();
+            AstType type = readWrappedType("type");
+            String name = text("name");
+            end();
+            return withLineNumber(new VarDecl(type, name, 0), lineNumber);
+        }
+
+        private List<Statement> readStatementList(String name) throws XMLStreamException {
+            List<Statement> statements = new ArrayList<>();
+            if (isStart(name)) {
+                next();
+                while (xml.isStartElement()) {
+                    statements.add(readStatement());
+                }
+                end();
+            }
+            return statements;
+        }
+
+        private Statement readWrappedStatement(String name) throws XMLStreamException {
+            start(name);
+            Statement statement = readStatement();
+            end();
+            return statement;
+        }
+
+        private Statement readStatement() throws XMLStreamException {
+            String kind = xml.getLocalName();
+            next();
+            Integer lineNumber = lineNumber();
+            Statement statement;
+            switch (kind) {
+                case "block":
+                    statement = new BlockStatement(readStatementList("statements"));
+                    break;
+                case "if": {
+                    Expr cond = readWrappedExpr("cond");
+                    Statement thencase = readWrappedStatement("thencase");
+                    Statement elsecase = readWrappedStatement("elsecase");
+                    statement = new IfStatement(cond, thencase, elsecase);
+                    break;
+                }
+                case "while": {
+                    Expr cond = readWrappedExpr("cond");
+                    Statement body = readWrappedStatement("body");
+                    statement = new WhileStatement(cond, body);
+                    break;
+                }
+                case "sysout":
+                    statement = new SysoutStatement(readWrappedExpr("arg"));
+                    break;
+                case "assign": {
+                    String lv = text("lv");
+                    Expr rv = readWrappedExpr("rv");
+                    statement = new AssignStatement(lv, rv);
+                    break;
+                }
+                case "assign-array": {
+                    String lv = text("lv");
+                    Expr index = readWrappedExpr("index");
+                    Expr rv = readWrappedExpr("rv");
+                    statement = new AssignArrayStatement(lv, index, rv);
+                    break;
+                }
+                default:
+                    throw new XMLStreamException("unknown statement <" + kind + ">", xml.getLocation());
+            }
+            end();
+            return withLineNumber(statement, lineNumber);
+        }
+
+        private Expr readWrappedExpr(String name) throws XMLStreamException {
+            start(name);
+            Expr expr = readExpr();
+            end();
+            return expr;
+        }
+
+        private Expr readExpr() throws XMLStreamException {
+            String kind = xml.getLocalName();
+            next();
+            Integer lineNumber = lineNumber();
+            Expr expr;
+            switch (kind) {
+                case "and":
+                    expr = new AndExpr(readWrappedExpr("e1"), readWrappedExpr("e2"));
+                    break;
+                case "lt":
+                    expr = new LtExpr(readWrappedExpr("e1"), readWrappedExpr("e2"));
+                    break;
+                case "add":
+                    expr = new AddExpr(readWrappedExpr("e1"), readWrappedExpr("e2"));
+                    break;
+                case "subtract":
+                    expr = new SubtractExpr(readWrappedExpr("e1"), readWrappedExpr("e2"));
+                    break;
+                case "mult":
+                    expr = new MultExpr(readWrappedExpr("e1"), readWrappedExpr("e2"));
+                    break;
+                case "array-access":
+                    expr = new ArrayAccessExpr(readWrappedExpr("arrayExpr"), readWrappedExpr("indexExpr"));
+                    break;
+                case "array-length":
+                    expr = new ArrayLengthExpr(readWrappedExpr("arrayExpr"));
+                    break;
+                case "call": {
+                    Expr ownerExpr = readWrappedExpr("ownerExpr");
+                    String methodId = text("methodId");
+                    List<Expr> actuals = new ArrayList<>();
+                    if (isStart("actuals")) {
+                        next();
+                        while (isStart("actual")) {
+                            actuals.add(readWrappedExpr("actual"));
+                        }
+                        end();
+                    }
+                    expr = new MethodCallExpr(ownerExpr, methodId, actuals);
+                    break;
+                }
+                case "int-literal": {
+                    // A missing number is 0, as an int property of JAXB
+                    String num = optionalText("num");
+                    expr = new IntegerLiteralExpr(num == null ? 0 : Integer.parseInt(num.trim()));
+                    break;
+                }
+                case "true":
+                    expr = new TrueExpr();
+                    break;
+                case "false":
+                    expr = new FalseExpr();
+                    break;
+                case "ref-id":
+                    expr = new IdentifierExpr(text("id"));
+                    break;
+                case "this":
+                    expr = new ThisExpr();
+                    break;
+                case "new-int-array":
+                    expr = new NewIntArrayExpr(readWrappedExpr("lengthExpr"));
+                    break;
+                case "new-object":
+                    expr = new NewObjectExpr(text("classId"));
+                    break;
+                case "not":
+                    expr = new NotExpr(readWrappedExpr("e"));
+                    break;
+                default:
+                    throw new XMLStreamException("unknown expression <" + kind + ">", xml.getLocation());
+            }
+            end();
+            return withLineNumber(expr, lineNumber);
+        }
+
+        private AstType readWrappedType(String name) throws XMLStreamException {
+            start(name);
+            String kind = xml.getLocalName();
+            next();
+            Integer lineNumber = lineNumber();
+            AstType type;
+            switch (kind) {
+                case "int":
+                    type = new IntAstType();
+                    break;
+                case "bool":
+                    type = new BoolAstType();
+                    break;
+                case "int-array":
+                    type = new IntArrayAstType();
+                    break;
+                case "ref":
+                    type = new RefType(text("id"));
+                    break;
+                default:
+                    throw new XMLStreamException("unknown type <" + kind + ">", xml.getLocation());
+            }
+            end();
+            end();
+            return withLineNumber(type, lineNumber);
+        }
+    }
+}
@@ -3,20 +3,33 @@ package ast;
 import javax.xml.bind.*;
 import java.io.*;
 
-public class AstXMLSerializer {
+public class AstXMLSerializer implements AstSerializer {
+    // JAXBContext is thread safe and expensive to create, so it is shared by all serializer instances
+    private static JAXBContext context;
+
+    private static synchronized JAXBContext getContext() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(Program.class);
+        }
+        return context;
+    }
+
+    @Override
     public void serialize(AstNode ast, String outfilename) throws IOException {
+        var outWriter = new FileOutputStream(new File(outfilename));
         try {
-            JAXBContext jc = JAXBContext.newInstance(Program.class);
-
+            serialize(ast, outWriter);
+        } finally {
+            outWriter.close();
+        }
+    }
 
-            Marshaller marshaller = jc.createMarshaller();
+    @Override
+    public void serialize(AstNode ast, OutputStream out) {
+        try {
+            Marshaller marshaller = getContext().createMarshaller();
             marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            var outWriter = new FileOutputStream(new File(outfilename));
-            try {
-                marshaller.marshal(ast, outWriter);
-            } finally {
-                outWriter.close();
-            }
+            marshaller.marshal(ast, out);
         } catch (PropertyException e) {
             e.printStackTrace();
             throw new RuntimeException();
@@ -26,11 +39,10 @@ public class AstXMLSerializer {
         }
     }
 
+    @Override
     public Program deserialize(File file) {
         try {
-            JAXBContext jc = JAXBContext.newInstance(Program.class);
-
-            Unmarshaller unmarshaller = jc.createUnmarshaller();
+            Unmarshaller unmarshaller = getContext().createUnmarshaller();
             return (Program) unmarshaller.unmarshal(file);
         } catch (PropertyException e) {
             e.printStackTrace();
@@ -40,4 +52,18 @@ public class AstXMLSerializer {
             throw new RuntimeException();
         }
     }
+
+    @Override
+    public Program deserialize(InputStream in) {
+        try {
+            Unmarshaller unmarshaller = getContext().createUnmarshaller();
+            return (Program) unmarshaller.unmarshal(in);
+        } catch (PropertyException e) {
+            e.printStackTrace();
+            throw new RuntimeException();
+        } catch (JAXBException e) {
+            e.printStackTrace();
+            throw new RuntimeException();
+        }
+    }
 }
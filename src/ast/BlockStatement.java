@@ -24,7 +24,7 @@ public class BlockStatement extends Statement {
 
     public BlockStatement(List<Statement> statements) {
         super();
-        this.statements = statements;
+        this.statements = indexed(statements);
     }
 
     @Override
@@ -32,7 +32,20 @@ public class BlockStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public List<Statement> statements() {
         return statements;
     }
+
+    public int statementCount() {
+        return statements.size();
+    }
+
+    public Statement statement(int i) {
+        return statements.get(i);
+    }
 }
@@ -9,5 +9,10 @@ public class BoolAstType extends AstType {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
 }
 
@@ -1,5 +1,6 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.*;
 import java.util.List;
 
@@ -7,9 +8,15 @@ public class ClassDecl extends AstNode {
     @XmlElement(required = true)
     private String name;
 
+    // The interned symbol of name (see SymbolTable), set along with it
+    private int nameSymbol = SymbolTable.NONE;
+
     @XmlElement(required = false)
     private String superName;
 
+    // Likewise, the interned symbol of superName
+    private int superNameSymbol = SymbolTable.NONE;
+
     @XmlElementWrapper(name="fields", required=true)
     @XmlElement(name="field")
     private List<VarDecl> fields;
@@ -22,31 +29,76 @@ public class ClassDecl extends AstNode {
     public ClassDecl() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        nameSymbol = SymbolTable.intern(name);
+        superNameSymbol = superName == null ? SymbolTable.NONE : SymbolTable.intern(superName);
+    }
+
     public ClassDecl(String name, String superName, List<VarDecl> fields, List<MethodDecl> methoddecls) {
+        this(SymbolTable.identifier(name), superName == null ? null : SymbolTable.identifier(superName), fields,
+                methoddecls);
+    }
+
+    // superName is null when there is no super class
+    public ClassDecl(Identifier name, Identifier superName, List<VarDecl> fields, List<MethodDecl> methoddecls) {
         super();
-        this.name = name;
-        this.superName = superName;
-        this.fields = fields;
-        this.methoddecls = methoddecls;
+        this.name = name.name;
+        this.nameSymbol = name.symbol;
+        if (superName != null) {
+            this.superName = superName.name;
+            this.superNameSymbol = superName.symbol;
+        }
+        this.fields = indexed(fields);
+        this.methoddecls = indexed(methoddecls);
     }
 
     public void accept(Visitor v) {
         v.visit(this);
     }
 
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String name() {
         return name;
     }
 
+    public int nameSymbol() {
+        return nameSymbol;
+    }
+
     public String superName() {
         return superName;
     }
 
+    // NONE when there is no super class
+    public int superNameSymbol() {
+        return superNameSymbol;
+    }
+
     public List<VarDecl> fields() {
         return fields;
     }
 
+    public int fieldCount() {
+        return fields.size();
+    }
+
+    public VarDecl field(int i) {
+        return fields.get(i);
+    }
+
     public List<MethodDecl> methoddecls() {
         return methoddecls;
     }
+
+    public int methodDeclCount() {
+        return methoddecls.size();
+    }
+
+    public MethodDecl methodDecl(int i) {
+        return methoddecls.get(i);
+    }
 }
@@ -0,0 +1,180 @@
+package ast;
+
+import java.util.Arrays;
+
+public class ClassHierarchy {
+    /* The inheritance forest of the classes of a program. Every class declaration is a node, numbered in the order of
+     * the source: the main class is node 0, and program.classDecl(i) is node i + 1. The superclass of a node is the
+     * first declaration of its super name, when that comes before the node; a class whose superclass is not declared
+     * before it (which the semantic checks reject) is a root, so the forest never has a cycle.
+     *
+     * A depth first walk from the roots, in the order of the source, numbers the nodes in pre-order, and gives every
+     * node the interval [pre, last] of the pre-order numbers of its subtree. A class is then a subclass of another
+     * exactly when its pre-order number falls in the other's interval: two int comparisons, whatever the depth. The
+     * walk keeps its own stack, so deep hierarchies do not overflow the Java stack. */
+
+    public static final int NO_CLASS = -1;
+
+    private final Program program;
+    private final int[] symbols;
+    private final int[] superclasses;
+    /* The nodes by the symbol of their name (the first declaration of each name), unboxed: open addressing with linear
+     * probing as in SymbolMap, where nodeKeys holds symbol + 1 (0 for an empty slot) and nodeValues the node. It is
+     * sized for all the declarations at once, and never grows. */
+    private final int[] nodeKeys;
+    private final int[] nodeValues;
+
+    // The children of node n are children[childStart[n]] ... children[childStart[n + 1] - 1], in the source order
+    private final int[] childStart;
+    private final int[] children;
+
+    private final int[] pre;
+    private final int[] last;
+    // The nodes by their pre-order number
+    private final int[] preorder;
+
+    public ClassHierarchy(Program program) {
+        this.program = program;
+        int size = program.classDeclCount() + 1;
+        symbols = new int[size];
+        superclasses = new int[size];
+        // (at most half full)
+        nodeKeys = new int[Integer.highestOneBit(size) << 2];
+        nodeValues = new int[nodeKeys.length];
+
+        symbols[0] = program.mainClass().nameSymbol();
+        superclasses[0] = NO_CLASS;
+        addNode(0);
+        for (int node = 1; node < size; node++) {
+            ClassDecl classDecl = program.classDecl(node - 1);
+            symbols[node] = classDecl.nameSymbol();
+            addNode(node);
+
+            int superclass = classDecl.superName() == null ? NO_CLASS : nodeOf(classDecl.superNameSymbol());
+            superclasses[node] = superclass < node ? superclass : NO_CLASS;
+        }
+
+        // Counting sort of the nodes by their superclass, which keeps the children of each node in the source order
+        childStart = new int[size + 1];
+        for (int node = 0; node < size; node++) {
+            if (superclasses[node] != NO_CLASS) {
+                childStart[superclasses[node] + 1]++;
+            }
+        }
+        for (int node = 0; node < size; node++) {
+            childStart[node + 1] += childStart[node];
+        }
+        children = new int[childStart[size]];
+        int[] next = Arrays.copyOf(childStart, size);
+        for (int node = 0; node < size; node++) {
+            if (superclasses[node] != NO_CLASS) {
+                children[next[superclasses[node]]++] = node;
+            }
+        }
+
+        pre = new int[size];
+        last = new int[size];
+        preorder = new int[size];
+        number();
+    }
+
+    // Unless an earlier declaration has the same name
+    private void addNode(int node) {
+        int slot = slotOf(symbols[node]);
+        if (nodeKeys[slot] == 0) {
+            nodeKeys[slot] = symbols[node] + 1;
+            nodeValues[slot] = node;
+        }
+    }
+
+    private int slotOf(int symbol) {
+        // The slot holding the symbol, or else the empty slot where it would be put
+        int mask = nodeKeys.length - 1;
+        int hash = symbol * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (nodeKeys[slot] != 0 && nodeKeys[slot] != symbol + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void number() {
+        int size = symbols.length;
+        // The path from the current root to the current node, and the index of the next child to visit of each of them
+        int[] path = new int[size];
+        int[] nextChild = new int[size];
+        int counter = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (superclasses[root] != NO_CLASS) {
+                continue;
+            }
+
+            int depth = 0;
+            path[0] = root;
+            nextChild[0] = childStart[root];
+            pre[root] = counter;
+            preorder[counter++] = root;
+            while (depth >= 0) {
+                int node = path[depth];
+                if (nextChild[depth] < childStart[node + 1]) {
+                    int child = children[nextChild[depth]++];
+                    path[++depth] = child;
+                    nextChild[depth] = childStart[child];
+                    pre[child] = counter;
+                    preorder[counter++] = child;
+                } else {
+                    last[node] = counter - 1;
+                    depth--;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    /* The node of the first declaration of the class, or NO_CLASS when the program does not declare it */
+    public int nodeOf(int classSymbol) {
+        int slot = slotOf(classSymbol);
+        return nodeKeys[slot] == 0 ? NO_CLASS : nodeValues[slot];
+    }
+
+    public int symbol(int node) {
+        return symbols[node];
+    }
+
+    /* The declaration of the node, which is null for the main class */
+    public ClassDecl classDecl(int node) {
+        return node == 0 ? null : program.classDecl(node - 1);
+    }
+
+    public int superclass(int node) {
+        return superclasses[node];
+    }
+
+    /* Whether node is ancestor or one of its subclasses */
+    public boolean isSubclass(int node, int ancestor) {
+        return pre[ancestor] <= pre[node] && pre[node] <= last[ancestor];
+    }
+
+    /* The direct subclasses of the node */
+    public int childCount(int node) {
+        return childStart[node + 1] - childStart[node];
+    }
+
+    public int child(int node, int i) {
+        return children[childStart[node] + i];
+    }
+
+    /* All the subclasses of the node (but itself), in pre-order: the first child, its subclasses, the second child and
+     * so on. The subclasses of descendant(node, i) are the descendantCount of it that follow it. */
+    public int descendantCount(int node) {
+        return last[node] - pre[node];
+    }
+
+    public int descendant(int node, int i) {
+        return preorder[pre[node] + 1 + i];
+    }
+}
@@ -8,4 +8,9 @@ public class FalseExpr extends Expr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
 }
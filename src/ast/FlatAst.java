@@ -0,0 +1,572 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class FlatAst {
+    /* An alternative, flat representation of a program: its nodes are int handles into a struct of arrays instead of
+     * objects. Node n is of the kind kinds[n] (a NodeKind constant), has the line number lines[n] (NO_LINE
+     * for none), and its fields are the ints data[records[n]], data[records[n] + 1], ... in the order of the XML
+     * format, as the table below lists them. A field is either a child (the handle of a node), a name (a SymbolTable
+     * symbol), a list (the index in data of its size followed by the handles of its elements), or the number of an
+     * integer literal. A missing child, name or list is NONE.
+     *
+     *      PROGRAM                 mainClass, classDecls (list)
+     *      MAIN_CLASS              name, argsName, mainStatement
+     *      CLASS_DECL              name, superName, fields (list), methodDecls (list)
+     *      METHOD_DECL             returnType, name, formals (list), varDecls (list), body (list), ret
+     *      FORMAL_ARG, VAR_DECL    type, name
+     *      BLOCK                   statements (list)
+     *      IF                      cond, thencase, elsecase
+     *      WHILE                   cond, body
+     *      SYSOUT                  arg
+     *      ASSIGN                  lv, rv
+     *      ASSIGN_ARRAY            lv, index, rv
+     *      AND, LT, ADD, SUBTRACT, MULT    e1, e2
+     *      ARRAY_ACCESS            arrayExpr, indexExpr
+     *      ARRAY_LENGTH            arrayExpr
+     *      CALL                    ownerExpr, methodId, actuals (list)
+     *      INT_LITERAL             num
+     *      REF_ID                  id
+     *      NEW_INT_ARRAY           lengthExpr
+     *      NEW_OBJECT              classId
+     *      NOT                     e
+     *      REF_TYPE                id
+     *      TRUE, FALSE, THIS, INT_TYPE, BOOL_TYPE, INT_ARRAY_TYPE     (none)
+     *
+     * The nodes are numbered in post-order, so the nodes of a subtree are contiguous and end with its root (the root
+     * of the program is the last node), and a pass that does not depend on the shape of the tree (e.g. counting the
+     * nodes of each kind) is a linear scan over the arrays. A node takes a byte and two ints plus an int per field,
+     * against an object with a boxed line number and a wrapper object per child expression, statement and type in
+     * the AST classes. The conversions in both directions are exact, including the line numbers of all the nodes, and
+     * the names are taken from and given back to the nodes as the symbols they carry. */
+
+    public static final int NONE = SymbolTable.NONE;
+    public static final int NO_LINE = Integer.MIN_VALUE;
+
+    private byte[] kinds;
+    private int[] lines;
+    private int[] records;
+    private int size = 0;
+    private int[] data;
+    private int dataSize = 0;
+
+    private FlatAst(int capacity) {
+        kinds = new byte[capacity];
+        lines = new int[capacity];
+        records = new int[capacity];
+        // About two fields per node
+        data = new int[2 * capacity];
+    }
+
+    public static FlatAst of(Program program) {
+        var builder = new Builder(new FlatAst(1024));
+        program.accept(builder);
+        builder.ast.trim();
+        return builder.ast;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return size - 1;
+    }
+
+    public int kind(int node) {
+        return kinds[node];
+    }
+
+    public int line(int node) {
+        return lines[node];
+    }
+
+    // The field (a child, a name, a list or a number) of the node, numbered from 0 as in the table above
+    public int field(int node, int field) {
+        return data[records[node] + field];
+    }
+
+    public int listSize(int list) {
+        return data[list];
+    }
+
+    public int listElement(int list, int index) {
+        return data[list + 1 + index];
+    }
+
+    // The size of the arrays in bytes, for comparing footprints
+    public long footprintBytes() {
+        return kinds.length + 4L * (lines.length + records.length + data.length);
+    }
+
+    /*****************/
+    /* Building      */
+    /*****************/
+
+    private int node(int kind, AstNode astNode) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, 2 * size);
+            lines = Arrays.copyOf(lines, 2 * size);
+            records = Arrays.copyOf(records, 2 * size);
+        }
+        kinds[size] = (byte) kind;
+        lines[size] = astNode.lineNumber == null ? NO_LINE : astNode.lineNumber;
+        records[size] = dataSize;
+        return size++;
+    }
+
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        lines = Arrays.copyOf(lines, size);
+        records = Arrays.copyOf(records, size);
+        data = Arrays.copyOf(data, dataSize);
+    }
+
+    private void put(int value) {
+        if (dataSize == data.length) {
+            data = Arrays.copyOf(data, 2 * dataSize);
+        }
+        data[dataSize++] = value;
+    }
+
+    private static class Builder implements Visitor {
+        private final FlatAst ast;
+        // The handle of the node that was converted last
+        private int result;
+        /* The handles of the elements of the lists being converted: a list is written to the data only once all of
+         * its elements have been, and the lists nest */
+        private int[] elements = new int[64];
+        private int elementCount = 0;
+
+        Builder(FlatAst ast) {
+            this.ast = ast;
+        }
+
+        private int convert(AstNode node) {
+            if (node == null) {
+                return NONE;
+            }
+            node.accept(this);
+            return result;
+        }
+
+        private int list(List<? extends AstNode> nodes) {
+            if (nodes == null) {
+                return NONE;
+            }
+            int mark = elementCount;
+            for (AstNode node : nodes) {
+                int element = convert(node);
+                if (elementCount == elements.length) {
+                    elements = Arrays.copyOf(elements, 2 * elementCount);
+                }
+                elements[elementCount++] = element;
+            }
+            int list = ast.dataSize;
+            ast.put(elementCount - mark);
+            for (int i = mark; i < elementCount; i++) {
+                ast.put(elements[i]);
+            }
+            elementCount = mark;
+            return list;
+        }
+
+        private static int symbol(String name) {
+            return name == null ? NONE : SymbolTable.intern(name);
+        }
+
+        private void variableIntroduction(int kind, VariableIntroduction variable) {
+            int type = convert(variable.type());
+            result = ast.node(kind, variable);
+            ast.put(type);
+            ast.put(variable.nameSymbol());
+        }
+
+        private void binaryExpr(int kind, BinaryExpr e) {
+            int e1 = convert(e.e1());
+            int e2 = convert(e.e2());
+            result = ast.node(kind, e);
+            ast.put(e1);
+            ast.put(e2);
+        }
+
+        @Override
+        public void visit(Program program) {
+            int mainClass = convert(program.mainClass());
+            int classDecls = list(program.classDecls());
+            result = ast.node(NodeKind.PROGRAM, program);
+            ast.put(mainClass);
+            ast.put(classDecls);
+        }
+
+        @Override
+        public void visit(ClassDecl classDecl) {
+            int fields = list(classDecl.fields());
+            int methodDecls = list(classDecl.methoddecls());
+            result = ast.node(NodeKind.CLASS_DECL, classDecl);
+            ast.put(classDecl.nameSymbol());
+            ast.put(classDecl.superNameSymbol());
+            ast.put(fields);
+            ast.put(methodDecls);
+        }
+
+        @Override
+        public void visit(MainClass mainClass) {
+            int mainStatement = convert(mainClass.mainStatement());
+            result = ast.node(NodeKind.MAIN_CLASS, mainClass);
+            ast.put(mainClass.nameSymbol());
+            ast.put(symbol(mainClass.argsName()));
+            ast.put(mainStatement);
+        }
+
+        @Override
+        public void visit(MethodDecl methodDecl) {
+            int returnType = convert(methodDecl.returnType());
+            int formals = list(methodDecl.formals());
+            int varDecls = list(methodDecl.vardecls());
+            int body = list(methodDecl.body());
+            int ret = convert(methodDecl.ret());
+            result = ast.node(NodeKind.METHOD_DECL, methodDecl);
+            ast.put(returnType);
+            ast.put(methodDecl.nameSymbol());
+            ast.put(formals);
+            ast.put(varDecls);
+            ast.put(body);
+            ast.put(ret);
+        }
+
+        @Override
+        public void visit(FormalArg formalArg) {
+            variableIntroduction(NodeKind.FORMAL_ARG, formalArg);
+        }
+
+        @Override
+        public void visit(VarDecl varDecl) {
+            variableIntroduction(NodeKind.VAR_DECL, varDecl);
+        }
+
+        @Override
+        public void visit(BlockStatement blockStatement) {
+            int statements = list(blockStatement.statements());
+            result = ast.node(NodeKind.BLOCK, blockStatement);
+            ast.put(statements);
+        }
+
+        @Override
+        public void visit(IfStatement ifStatement) {
+            int cond = convert(ifStatement.cond());
+            int thencase = convert(ifStatement.thencase());
+            int elsecase = convert(ifStatement.elsecase());
+            result = ast.node(NodeKind.IF, ifStatement);
+            ast.put(cond);
+            ast.put(thencase);
+            ast.put(elsecase);
+        }
+
+        @Override
+        public void visit(WhileStatement whileStatement) {
+            int cond = convert(whileStatement.cond());
+            int body = convert(whileStatement.body());
+            result = ast.node(NodeKind.WHILE, whileStatement);
+            ast.put(cond);
+            ast.put(body);
+        }
+
+        @Override
+        public void visit(SysoutStatement sysoutStatement) {
+            int arg = convert(sysoutStatement.arg());
+            result = ast.node(NodeKind.SYSOUT, sysoutStatement);
+            ast.put(arg);
+        }
+
+        @Override
+        public void visit(AssignStatement assignStatement) {
+            int rv = convert(assignStatement.rv());
+            result = ast.node(NodeKind.ASSIGN, assignStatement);
+            ast.put(assignStatement.lvSymbol());
+            ast.put(rv);
+        }
+
+        @Override
+        public void visit(AssignArrayStatement assignArrayStatement) {
+            int index = convert(assignArrayStatement.index());
+            int rv = convert(assignArrayStatement.rv());
+            result = ast.node(NodeKind.ASSIGN_ARRAY, assignArrayStatement);
+            ast.put(assignArrayStatement.lvSymbol());
+            ast.put(index);
+            ast.put(rv);
+        }
+
+        @Override
+        public void visit(AndExpr e) {
+            binaryExpr(NodeKind.AND, e);
+        }
+
+        @Override
+        public void visit(LtExpr e) {
+            binaryExpr(NodeKind.LT, e);
+        }
+
+        @Override
+        public void visit(AddExpr e) {
+            binaryExpr(NodeKind.ADD, e);
+        }
+
+        @Override
+        public void visit(SubtractExpr e) {
+            binaryExpr(NodeKind.SUBTRACT, e);
+        }
+
+        @Override
+        public void visit(MultExpr e) {
+            binaryExpr(NodeKind.MULT, e);
+        }
+
+        @Override
+        public void visit(ArrayAccessExpr e) {
+            int arrayExpr = convert(e.arrayExpr());
+            int indexExpr = convert(e.indexExpr());
+            result = ast.node(NodeKind.ARRAY_ACCESS, e);
+            ast.put(arrayExpr);
+            ast.put(indexExpr);
+        }
+
+        @Override
+        public void visit(ArrayLengthExpr e) {
+            int arrayExpr = convert(e.arrayExpr());
+            result = ast.node(NodeKind.ARRAY_LENGTH, e);
+            ast.put(arrayExpr);
+        }
+
+        @Override
+        public void visit(MethodCallExpr e) {
+            int ownerExpr = convert(e.ownerExpr());
+            int actuals = list(e.actuals());
+            result = ast.node(NodeKind.CALL, e);
+            ast.put(ownerExpr);
+            ast.put(e.methodIdSymbol());
+            ast.put(actuals);
+        }
+
+        @Override
+        public void visit(IntegerLiteralExpr e) {
+            result = ast.node(NodeKind.INT_LITERAL, e);
+            ast.put(e.num());
+        }
+
+        @Override
+        public void visit(TrueExpr e) {
+            result = ast.node(NodeKind.TRUE, e);
+        }
+
+        @Override
+        public void visit(FalseExpr e) {
+            result = ast.node(NodeKind.FALSE, e);
+        }
+
+        @Override
+        public void visit(IdentifierExpr e) {
+            result = ast.node(NodeKind.REF_ID, e);
+            ast.put(e.idSymbol());
+        }
+
+        @Override
+        public void visit(ThisExpr e) {
+            result = ast.node(NodeKind.THIS, e);
+        }
+
+        @Override
+        public void visit(NewIntArrayExpr e) {
+            int lengthExpr = convert(e.lengthExpr());
+            result = ast.node(NodeKind.NEW_INT_ARRAY, e);
+            ast.put(lengthExpr);
+        }
+
+        @Override
+        public void visit(NewObjectExpr e) {
+            result = ast.node(NodeKind.NEW_OBJECT, e);
+            ast.put(e.classIdSymbol());
+        }
+
+        @Override
+        public void visit(NotExpr e) {
+            int operand = convert(e.e());
+            result = ast.node(NodeKind.NOT, e);
+            ast.put(operand);
+        }
+
+        @Override
+        public void visit(IntAstType t) {
+            result = ast.node(NodeKind.INT_TYPE, t);
+        }
+
+        @Override
+        public void visit(BoolAstType t) {
+            result = ast.node(NodeKind.BOOL_TYPE, t);
+        }
+
+        @Override
+        public void visit(IntArrayAstType t) {
+            result = ast.node(NodeKind.INT_ARRAY_TYPE, t);
+        }
+
+        @Override
+        public void visit(RefType t) {
+            result = ast.node(NodeKind.REF_TYPE, t);
+            ast.put(t.idSymbol());
+        }
+    }
+
+    /*****************/
+    /* Converting    */
+    /*****************/
+
+    // The AST of the program, built anew from the nodes
+    public Program toProgram() {
+        return (Program) toNode(root());
+    }
+
+    private String name(int node, int field) {
+        return SymbolTable.name(field(node, field));
+    }
+
+    private Identifier identifier(int node, int field) {
+        return SymbolTable.identifier(field(node, field));
+    }
+
+    private Expr expr(int node, int field) {
+        return (Expr) toNode(field(node, field));
+    }
+
+    private Statement statement(int node, int field) {
+        return (Statement) toNode(field(node, field));
+    }
+
+    private AstType type(int node, int field) {
+        return (AstType) toNode(field(node, field));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends AstNode> List<T> list(int node, int field) {
+        int list = field(node, field);
+        if (list == NONE) {
+            return null;
+        }
+        List<T> nodes = new ArrayList<>(listSize(list));
+        for (int i = 0; i < listSize(list); i++) {
+            nodes.add((T) toNode(listElement(list, i)));
+        }
+        return nodes;
+    }
+
+    private AstNode toNode(int n) {
+        if (n == NONE) {
+            return null;
+        }
+        AstNode node;
+        switch (kinds[n]) {
+            case NodeKind.PROGRAM:
+                node = new Program((MainClass) toNode(field(n, 0)), list(n, 1));
+                break;
+            case NodeKind.MAIN_CLASS:
+                node = new MainClass(identifier(n, 0), name(n, 1), statement(n, 2));
+                break;
+            case NodeKind.CLASS_DECL:
+                node = new ClassDecl(identifier(n, 0), identifier(n, 1), list(n, 2), list(n, 3));
+                break;
+            case NodeKind.METHOD_DECL:
+                node = new MethodDecl(type(n, 0), identifier(n, 1), list(n, 2), list(n, 3), list(n, 4), expr(n, 5), 0);
+                break;
+            case NodeKind.FORMAL_ARG:
+                node = new FormalArg(type(n, 0), identifier(n, 1), 0);
+                break;
+            case NodeKind.VAR_DECL:
+                node = new VarDecl(type(n, 0), identifier(n, 1), 0);
+                break;
+            case NodeKind.BLOCK:
+                node = new BlockStatement(list(n, 0));
+                break;
+            case NodeKind.IF:
+                node = new IfStatement(expr(n, 0), statement(n, 1), statement(n, 2));
+                break;
+            case NodeKind.WHILE:
+                node = new WhileStatement(expr(n, 0), statement(n, 1));
+                break;
+            case NodeKind.SYSOUT:
+                node = new SysoutStatement(expr(n, 0));
+                break;
+            case NodeKind.ASSIGN:
+                node = new AssignStatement(identifier(n, 0), expr(n, 1));
+                break;
+            case NodeKind.ASSIGN_ARRAY:
+                node = new AssignArrayStatement(identifier(n, 0), expr(n, 1), expr(n, 2));
+                break;
+            case NodeKind.AND:
+                node = new AndExpr(expr(n, 0), expr(n, 1));
+                break;
+            case NodeKind.LT:
+                node = new LtExpr(expr(n, 0), expr(n, 1));
+                break;
+            case NodeKind.ADD:
+                node = new AddExpr(expr(n, 0), expr(n, 1));
+                break;
+            case NodeKind.SUBTRACT:
+                node = new SubtractExpr(expr(n, 0), expr(n, 1));
+                break;
+            case NodeKind.MULT:
+                node = new MultExpr(expr(n, 0), expr(n, 1));
+                break;
+            case NodeKind.ARRAY_ACCESS:
+                node = new ArrayAccessExpr(expr(n, 0), expr(n, 1));
+                break;
+            case NodeKind.ARRAY_LENGTH:
+                node = new ArrayLengthExpr(expr(n, 0));
+                break;
+            case NodeKind.CALL:
+                node = new MethodCallExpr(expr(n, 0), identifier(n, 1), list(n, 2));
+                break;
+            case NodeKind.INT_LITERAL:
+                node = new IntegerLiteralExpr(field(n, 0));
+                break;
+            case NodeKind.TRUE:
+                node = new TrueExpr();
+                break;
+            case NodeKind.FALSE:
+                node = new FalseExpr();
+                break;
+            case NodeKind.REF_ID:
+                node = new IdentifierExpr(identifier(n, 0));
+                break;
+            case NodeKind.THIS:
+                node = new ThisExpr();
+                break;
+            case NodeKind.NEW_INT_ARRAY:
+                node = new NewIntArrayExpr(expr(n, 0));
+                break;
+            case NodeKind.NEW_OBJECT:
+                node = new NewObjectExpr(identifier(n, 0));
+                break;
+            case NodeKind.NOT:
+                node = new NotExpr(expr(n, 0));
+                break;
+            case NodeKind.INT_TYPE:
+                node = new IntAstType();
+                break;
+            case NodeKind.BOOL_TYPE:
+                node = new BoolAstType();
+                break;
+            case NodeKind.INT_ARRAY_TYPE:
+                node = new IntArrayAstType();
+                break;
+            case NodeKind.REF_TYPE:
+                node = new RefType(identifier(n, 0));
+                break;
+            default:
+                throw new IllegalStateException("unknown node kind " + kinds[n] + " of node " + n);
+        }
+        node.lineNumber = lines[n] == NO_LINE ? null : lines[n];
+        return node;
+    }
+}
@@ -11,8 +11,17 @@ public class FormalArg extends VariableIntroduction {
         super(type, name, lineNumber);
     }
 
+    public FormalArg(AstType type, Identifier name, Integer lineNumber) {
+        super(type, name, lineNumber);
+    }
+
     @Override
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
 }
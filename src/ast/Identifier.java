@@ -0,0 +1,20 @@
+package ast;
+
+public final class Identifier {
+    /* An interned name together with its symbol (see SymbolTable), the value of an ID token: the lexer interns the
+     * name once, and the parser builds the AST nodes from both, so no node looks its name up again. There is a single
+     * Identifier per symbol, so identifiers can be compared by identity. */
+
+    public final String name;
+    public final int symbol;
+
+    Identifier(String name, int symbol) {
+        this.name = name;
+        this.symbol = symbol;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,17 +1,31 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 
 public class IdentifierExpr extends Expr {
     @XmlElement(required = true)
     private String id;
 
+    // The interned symbol of id (see SymbolTable), set along with it
+    private int idSymbol = SymbolTable.NONE;
+
     // for deserialization only!
     public IdentifierExpr() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        idSymbol = SymbolTable.intern(id);
+    }
+
     public IdentifierExpr(String id) {
-        this.id = id;
+        this(SymbolTable.identifier(id));
+    }
+
+    public IdentifierExpr(Identifier id) {
+        this.id = id.name;
+        this.idSymbol = id.symbol;
     }
 
     @Override
@@ -19,11 +33,21 @@ public class IdentifierExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String id() {
         return id;
     }
 
+    public int idSymbol() {
+        return idSymbol;
+    }
+
     public void setId(String id) {
         this.id = id;
+        this.idSymbol = SymbolTable.intern(id);
     }
 }
@@ -27,6 +27,11 @@ public class IfStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public Expr cond() {
         return cond.e;
     }
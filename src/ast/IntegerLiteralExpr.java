@@ -19,6 +19,11 @@ public class IntegerLiteralExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public int num() {
         return num;
     }
@@ -1,11 +1,15 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 
 public class MainClass extends AstNode {
     @XmlElement(required = true)
     private String name;
 
+    // The interned symbol of name (see SymbolTable), set along with it
+    private int nameSymbol = SymbolTable.NONE;
+
     @XmlElement(required = true)
     private String argsName;
 
@@ -16,9 +20,19 @@ public class MainClass extends AstNode {
     public MainClass() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        nameSymbol = SymbolTable.intern(name);
+    }
+
     public MainClass(String name, String argsName, Statement mainStatement) {
+        this(SymbolTable.identifier(name), argsName, mainStatement);
+    }
+
+    public MainClass(Identifier name, String argsName, Statement mainStatement) {
         super();
-        this.name = name;
+        this.name = name.name;
+        this.nameSymbol = name.symbol;
         this.argsName = argsName;
         this.mainStatement = new StatementWrapper(mainStatement);
     }
@@ -28,10 +42,19 @@ public class MainClass extends AstNode {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String name() {
         return name;
     }
 
+    public int nameSymbol() {
+        return nameSymbol;
+    }
+
     public String argsName() {
         return argsName;
     }
@@ -1,5 +1,6 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import java.util.List;
@@ -11,6 +12,9 @@ public class MethodCallExpr extends Expr {
     @XmlElement(required = true)
     private String methodId;
 
+    // The interned symbol of methodId (see SymbolTable), set along with it
+    private int methodIdSymbol = SymbolTable.NONE;
+
     @XmlElementWrapper(name = "actuals", required = true)
     @XmlElement(name = "actual")
     private List<ExprWrapper> actuals;
@@ -19,9 +23,19 @@ public class MethodCallExpr extends Expr {
     public MethodCallExpr() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        methodIdSymbol = SymbolTable.intern(methodId);
+    }
+
     public MethodCallExpr(Expr ownerExpr, String methodId, List<Expr> actuals) {
+        this(ownerExpr, SymbolTable.identifier(methodId), actuals);
+    }
+
+    public MethodCallExpr(Expr ownerExpr, Identifier methodId, List<Expr> actuals) {
         this.ownerExpr = new ExprWrapper(ownerExpr);
-        this.methodId = methodId;
+        this.methodId = methodId.name;
+        this.methodIdSymbol = methodId.symbol;
         this.actuals = actuals.stream().map(e -> new ExprWrapper(e)).collect(Collectors.toList());
     }
 
@@ -30,6 +44,11 @@ public class MethodCallExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public Expr ownerExpr() {
         return ownerExpr.e;
     }
@@ -38,11 +57,25 @@ public class MethodCallExpr extends Expr {
         return methodId;
     }
 
+    public int methodIdSymbol() {
+        return methodIdSymbol;
+    }
+
     public void setMethodId(String methodId) {
         this.methodId = methodId;
+        this.methodIdSymbol = SymbolTable.intern(methodId);
     }
 
+    // A new list of the actuals, unwrapped (actualCount and actual read them without allocating)
     public List<Expr> actuals() {
         return actuals.stream().map(e -> e.e).collect(Collectors.toList());
     }
+
+    public int actualCount() {
+        return actuals.size();
+    }
+
+    public Expr actual(int i) {
+        return actuals.get(i).e;
+    }
 }
@@ -1,5 +1,6 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlElements;
@@ -11,6 +12,9 @@ public class MethodDecl extends AstNode {
     @XmlElement(required = true)
     private String name;
 
+    // The interned symbol of name (see SymbolTable), set along with it
+    private int nameSymbol = SymbolTable.NONE;
+
     @XmlElementWrapper(name="formals", required = true)
     @XmlElement(name="formal")
     private List<FormalArg> formals;
@@ -38,16 +42,28 @@ public class MethodDecl extends AstNode {
 
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        nameSymbol = SymbolTable.intern(name);
+    }
+
     public MethodDecl(AstType returnType, String name,
                       List<FormalArg> formals, List<VarDecl> vardecls, List<Statement> body, Expr ret,
                       Integer lineNumber) {
+        this(returnType, SymbolTable.identifier(name), formals, vardecls, body, ret, lineNumber);
+    }
+
+    public MethodDecl(AstType returnType, Identifier name,
+                      List<FormalArg> formals, List<VarDecl> vardecls, List<Statement> body, Expr ret,
+                      Integer lineNumber) {
         // lineNumber = null means it won't be marshaled to the XML
         super(lineNumber);
         this.returnType = new AstTypeWrapper(returnType);
-        this.name = name;
-        this.formals = formals;
-        this.vardecls = vardecls;
-        this.body = body;
+        this.name = name.name;
+        this.nameSymbol = name.symbol;
+        this.formals = indexed(formals);
+        this.vardecls = indexed(vardecls);
+        this.body = indexed(body);
         this.ret = new ExprWrapper(ret);
     }
 
@@ -56,6 +72,11 @@ public class MethodDecl extends AstNode {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public AstType returnType() {
         return returnType.t;
     }
@@ -64,22 +85,52 @@ public class MethodDecl extends AstNode {
         return name;
     }
 
+    public int nameSymbol() {
+        return nameSymbol;
+    }
+
     public void setName(String name) {
         this.name = name;
+        this.nameSymbol = SymbolTable.intern(name);
     }
 
     public List<FormalArg> formals() {
         return formals;
     }
 
+    public int formalCount() {
+        return formals.size();
+    }
+
+    public FormalArg formal(int i) {
+        return formals.get(i);
+    }
+
     public List<VarDecl> vardecls() {
         return vardecls;
     }
 
+    public int varDeclCount() {
+        return vardecls.size();
+    }
+
+    public VarDecl varDecl(int i) {
+        return vardecls.get(i);
+    }
+
     public List<Statement> body() {
         return body;
     }
 
+    // The statements of the body
+    public int statementCount() {
+        return body.size();
+    }
+
+    public Statement statement(int i) {
+        return body.get(i);
+    }
+
     public Expr ret() {
         return ret.e;
     }
@@ -19,6 +19,11 @@ public class NewIntArrayExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public Expr lengthExpr() {
         return lengthExpr.e;
     }
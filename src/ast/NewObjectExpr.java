@@ -1,17 +1,31 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 
 public class NewObjectExpr extends Expr {
     @XmlElement(required = true)
     private String classId;
 
+    // The interned symbol of classId (see SymbolTable), set along with it
+    private int classIdSymbol = SymbolTable.NONE;
+
     // for deserialization only!
     public NewObjectExpr() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        classIdSymbol = SymbolTable.intern(classId);
+    }
+
     public NewObjectExpr(String classId) {
-        this.classId = classId;
+        this(SymbolTable.identifier(classId));
+    }
+
+    public NewObjectExpr(Identifier classId) {
+        this.classId = classId.name;
+        this.classIdSymbol = classId.symbol;
     }
 
     @Override
@@ -19,7 +33,16 @@ public class NewObjectExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String classId() {
         return classId;
     }
+
+    public int classIdSymbol() {
+        return classIdSymbol;
+    }
 }
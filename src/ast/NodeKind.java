@@ -0,0 +1,87 @@
+package ast;
+
+public final class NodeKind {
+    /* The kinds of the AST nodes as small ints, one per node class, for the passes that index arrays by the kind of a
+     * node: the kinds of the nodes of a FlatAst, and the counts of AstNodeCountVisitor. */
+
+    public static final int PROGRAM = 1;
+    public static final int MAIN_CLASS = 2;
+    public static final int CLASS_DECL = 3;
+    public static final int METHOD_DECL = 4;
+    public static final int FORMAL_ARG = 5;
+    public static final int VAR_DECL = 6;
+    public static final int BLOCK = 7;
+    public static final int IF = 8;
+    public static final int WHILE = 9;
+    public static final int SYSOUT = 10;
+    public static final int ASSIGN = 11;
+    public static final int ASSIGN_ARRAY = 12;
+    public static final int AND = 13;
+    public static final int LT = 14;
+    public static final int ADD = 15;
+    public static final int SUBTRACT = 16;
+    public static final int MULT = 17;
+    public static final int ARRAY_ACCESS = 18;
+    public static final int ARRAY_LENGTH = 19;
+    public static final int CALL = 20;
+    public static final int INT_LITERAL = 21;
+    public static final int TRUE = 22;
+    public static final int FALSE = 23;
+    public static final int REF_ID = 24;
+    public static final int THIS = 25;
+    public static final int NEW_INT_ARRAY = 26;
+    public static final int NEW_OBJECT = 27;
+    public static final int NOT = 28;
+    public static final int INT_TYPE = 29;
+    public static final int BOOL_TYPE = 30;
+    public static final int INT_ARRAY_TYPE = 31;
+    public static final int REF_TYPE = 32;
+
+    // The size of an array indexed by the kinds
+    public static final int COUNT = REF_TYPE + 1;
+
+    // The node class of each kind
+    private static final String[] NAMES = new String[COUNT];
+    static {
+        NAMES[PROGRAM] = Program.class.getSimpleName();
+        NAMES[MAIN_CLASS] = MainClass.class.getSimpleName();
+        NAMES[CLASS_DECL] = ClassDecl.class.getSimpleName();
+        NAMES[METHOD_DECL] = MethodDecl.class.getSimpleName();
+        NAMES[FORMAL_ARG] = FormalArg.class.getSimpleName();
+        NAMES[VAR_DECL] = VarDecl.class.getSimpleName();
+        NAMES[BLOCK] = BlockStatement.class.getSimpleName();
+        NAMES[IF] = IfStatement.class.getSimpleName();
+        NAMES[WHILE] = WhileStatement.class.getSimpleName();
+        NAMES[SYSOUT] = SysoutStatement.class.getSimpleName();
+        NAMES[ASSIGN] = AssignStatement.class.getSimpleName();
+        NAMES[ASSIGN_ARRAY] = AssignArrayStatement.class.getSimpleName();
+        NAMES[AND] = AndExpr.class.getSimpleName();
+        NAMES[LT] = LtExpr.class.getSimpleName();
+        NAMES[ADD] = AddExpr.class.getSimpleName();
+        NAMES[SUBTRACT] = SubtractExpr.class.getSimpleName();
+        NAMES[MULT] = MultExpr.class.getSimpleName();
+        NAMES[ARRAY_ACCESS] = ArrayAccessExpr.class.getSimpleName();
+        NAMES[ARRAY_LENGTH] = ArrayLengthExpr.class.getSimpleName();
+        NAMES[CALL] = MethodCallExpr.class.getSimpleName();
+        NAMES[INT_LITERAL] = IntegerLiteralExpr.class.getSimpleName();
+        NAMES[TRUE] = TrueExpr.class.getSimpleName();
+        NAMES[FALSE] = FalseExpr.class.getSimpleName();
+        NAMES[REF_ID] = IdentifierExpr.class.getSimpleName();
+        NAMES[THIS] = ThisExpr.class.getSimpleName();
+        NAMES[NEW_INT_ARRAY] = NewIntArrayExpr.class.getSimpleName();
+        NAMES[NEW_OBJECT] = NewObjectExpr.class.getSimpleName();
+        NAMES[NOT] = NotExpr.class.getSimpleName();
+        NAMES[INT_TYPE] = IntAstType.class.getSimpleName();
+        NAMES[BOOL_TYPE] = BoolAstType.class.getSimpleName();
+        NAMES[INT_ARRAY_TYPE] = IntArrayAstType.class.getSimpleName();
+        NAMES[REF_TYPE] = RefType.class.getSimpleName();
+    }
+
+    private NodeKind() {
+    }
+
+    // The simple name of the node class of the kind
+    public static String name(int kind) {
+        return NAMES[kind];
+    }
+}
@@ -20,7 +20,7 @@ public class Program extends AstNode {
     public Program(MainClass mainclass, List<ClassDecl> classdecls) {
         super();
         this.mainclass = mainclass;
-        this.classdecls = classdecls;
+        this.classdecls = indexed(classdecls);
     }
 
     @Override
@@ -28,6 +28,11 @@ public class Program extends AstNode {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public MainClass mainClass() {
         return mainclass;
     }
@@ -35,4 +40,12 @@ public class Program extends AstNode {
     public List<ClassDecl> classDecls() {
         return classdecls;
     }
+
+    public int classDeclCount() {
+        return classdecls.size();
+    }
+
+    public ClassDecl classDecl(int i) {
+        return classdecls.get(i);
+    }
 }
@@ -0,0 +1,10 @@
+package ast;
+
+/* Receives the declarations of a program from a parser as soon as each of them is parsed, in the order of the source:
+ * the main class first, and then every class. The parser then leaves the classes out of the list of the Program that
+ * it returns, so none of them is kept once the sink is done with it (see AstStaxSerializer.ProgramStreamWriter). */
+public interface ProgramSink {
+    void mainClass(MainClass mainClass);
+
+    void classDecl(ClassDecl classDecl);
+}
@@ -1,18 +1,32 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 
 public class RefType extends AstType {
     @XmlElement(required = true)
     private String id;
 
+    // The interned symbol of id (see SymbolTable), set along with it
+    private int idSymbol = SymbolTable.NONE;
+
     // for deserialization only!
     public RefType() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        idSymbol = SymbolTable.intern(id);
+    }
+
     public RefType(String id) {
+        this(SymbolTable.identifier(id));
+    }
+
+    public RefType(Identifier id) {
         super();
-        this.setId(id);
+        this.id = id.name;
+        this.idSymbol = id.symbol;
     }
 
     @Override
@@ -20,11 +34,21 @@ public class RefType extends AstType {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public String id() {
         return id;
     }
 
+    public int idSymbol() {
+        return idSymbol;
+    }
+
     public void setId(String id) {
         this.id = id;
+        this.idSymbol = SymbolTable.intern(id);
     }
 }
@@ -0,0 +1,42 @@
+package ast;
+
+/* A visitor that returns a result from every node it visits, and passes a context down to the nodes it visits next
+ * (e.g. the static type of an expression, or the register that holds its value), instead of leaving the results on a
+ * stack of its own. A visitor that needs no context takes Void (and passes null). */
+public interface ResultVisitor<R, C> {
+    public R visit(Program program, C context);
+    public R visit(ClassDecl classDecl, C context);
+    public R visit(MainClass mainClass, C context);
+    public R visit(MethodDecl methodDecl, C context);
+    public R visit(FormalArg formalArg, C context);
+    public R visit(VarDecl varDecl, C context);
+
+    public R visit(BlockStatement blockStatement, C context);
+    public R visit(IfStatement ifStatement, C context);
+    public R visit(WhileStatement whileStatement, C context);
+    public R visit(SysoutStatement sysoutStatement, C context);
+    public R visit(AssignStatement assignStatement, C context);
+    public R visit(AssignArrayStatement assignArrayStatement, C context);
+
+    public R visit(AndExpr e, C context);
+    public R visit(LtExpr e, C context);
+    public R visit(AddExpr e, C context);
+    public R visit(SubtractExpr e, C context);
+    public R visit(MultExpr e, C context);
+    public R visit(ArrayAccessExpr e, C context);
+    public R visit(ArrayLengthExpr e, C context);
+    public R visit(MethodCallExpr e, C context);
+    public R visit(IntegerLiteralExpr e, C context);
+    public R visit(TrueExpr e, C context);
+    public R visit(FalseExpr e, C context);
+    public R visit(IdentifierExpr e, C context);
+    public R visit(ThisExpr e, C context);
+    public R visit(NewIntArrayExpr e, C context);
+    public R visit(NewObjectExpr e, C context);
+    public R visit(NotExpr e, C context);
+
+    public R visit(IntAstType t, C context);
+    public R visit(BoolAstType t, C context);
+    public R visit(IntArrayAstType t, C context);
+    public R visit(RefType t, C context);
+}
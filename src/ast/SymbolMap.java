@@ -0,0 +1,98 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SymbolMap<V> {
+    /* A map keyed by the int symbols of SymbolTable, which neither boxes nor hashes its keys as a HashMap would.
+     * Open addressing with linear probing over parallel arrays, where a key is stored as symbol + 1 so that the
+     * zeroes of a fresh array mark the empty slots. */
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    public SymbolMap() {
+        keys = new int[8];
+        values = new Object[8];
+    }
+
+    public SymbolMap(SymbolMap<V> other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int symbol) {
+        return keys[slotOf(symbol)] != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int symbol) {
+        return (V) values[slotOf(symbol)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int symbol, V value) {
+        int slot = slotOf(symbol);
+        V previous = (V) values[slot];
+        values[slot] = value;
+        if (keys[slot] == 0) {
+            keys[slot] = symbol + 1;
+            if (2 * ++size > keys.length) {
+                grow();
+            }
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void putAll(SymbolMap<? extends V> other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != 0) {
+                put(other.keys[slot] - 1, (V) other.values[slot]);
+            }
+        }
+    }
+
+    /* The values in no particular order */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                values.add((V) this.values[slot]);
+            }
+        }
+        return values;
+    }
+
+    private int slotOf(int symbol) {
+        // The slot holding the symbol, or else the empty slot where it would be put
+        int mask = keys.length - 1;
+        int hash = symbol * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != 0 && keys[slot] != symbol + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new Object[2 * oldKeys.length];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                int newSlot = slotOf(oldKeys[slot] - 1);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ast;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public final class SymbolTable {
+    /* Interns the identifiers of the programs into dense int symbols: every distinct name gets the next int (starting
+     * at 0), so the analyses can key their tables by an int instead of hashing and comparing strings. The lexer
+     * interns every identifier it scans into its Identifier, the name and symbol that the parser builds the AST nodes
+     * from, so all the occurrences of a name in a parsed AST share one String as well.
+     *
+     * The table is shared by the process, and it is safe to use from several threads: looking up a name that is
+     * already there takes no lock, and only adding a new one does. Whatever holds symbols past a single call (a
+     * compilation in Main.run, the warm-up of the daemon, an IncrementalParser) retains the table while it does, and
+     * releases it when done. A long-running process (the daemon, or a batch) compiles many programs, so when the last
+     * holder releases it, a table that grew past MAX_RETAINED_SIZE names is cleared: the symbols are not valid
+     * anymore, and neither are the ASTs and Identifiers that carry them. Code that uses symbols without retaining
+     * the table (e.g. the benchmarks) must not run alongside the holders. */
+
+    public static final int NONE = -1;
+
+    public static final int MAX_RETAINED_SIZE = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final class Table {
+        /* The identifiers and hashes of capacity symbols, and open addressing with linear probing over twice as many
+         * slots (so the load factor stays at most 1/2): each slot holds a symbol, or NONE when empty. A symbol is
+         * written to its slot (a volatile write) after its identifier and hash, so a lookup that finds the symbol sees
+         * them too. A table that is full is replaced by a larger copy, and is not written anymore. */
+        final Identifier[] identifiers;
+        final int[] hashes;
+        final AtomicIntegerArray slots;
+
+        Table(int capacity) {
+            identifiers = new Identifier[capacity];
+            hashes = new int[capacity];
+            int[] empty = new int[2 * capacity];
+            Arrays.fill(empty, NONE);
+            slots = new AtomicIntegerArray(empty);
+        }
+
+        // The slot holding the name, or else the empty slot where it would be put
+        int slotOf(String name, int hash) {
+            int mask = slots.length() - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int symbol = slots.get(slot);
+                if (symbol == NONE || (hashes[symbol] == hash && identifiers[symbol].name.equals(name))) {
+                    return slot;
+                }
+            }
+        }
+
+        int slotOf(char[] chars, int start, int length, int hash) {
+            int mask = slots.length() - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int symbol = slots.get(slot);
+                if (symbol == NONE
+                        || (hashes[symbol] == hash && sameName(identifiers[symbol].name, chars, start, length))) {
+                    return slot;
+                }
+            }
+        }
+
+        void put(Identifier identifier, int hash, int slot) {
+            identifiers[identifier.symbol] = identifier;
+            hashes[identifier.symbol] = hash;
+            slots.set(slot, identifier.symbol);
+        }
+    }
+
+    private static volatile Table table = new Table(INITIAL_CAPACITY);
+    // Guarded by the class lock, as are the writes to the table
+    private static int size = 0;
+    private static int holders = 0;
+
+    private SymbolTable() {
+    }
+
+    public static int intern(String name) {
+        return identifier(name).symbol;
+    }
+
+    public static int intern(char[] chars, int start, int length) {
+        return identifier(chars, start, length).symbol;
+    }
+
+    public static Identifier identifier(String name) {
+        int hash = name.hashCode();
+        Table table = SymbolTable.table;
+        int symbol = table.slots.get(table.slotOf(name, hash));
+        return symbol != NONE ? table.identifiers[symbol] : add(name, hash);
+    }
+
+    /* Interns the name in chars[start, start + length), allocating its String and Identifier only the first time the
+     * name is seen */
+    public static Identifier identifier(char[] chars, int start, int length) {
+        // The same hash as String.hashCode(), so both overloads find the same slots
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        Table table = SymbolTable.table;
+        int symbol = table.slots.get(table.slotOf(chars, start, length, hash));
+        return symbol != NONE ? table.identifiers[symbol] : add(new String(chars, start, length), hash);
+    }
+
+    // The identifier of NONE is null
+    public static Identifier identifier(int symbol) {
+        return symbol == NONE ? null : table.identifiers[symbol];
+    }
+
+    // The name of NONE is null
+    public static String name(int symbol) {
+        return symbol == NONE ? null : table.identifiers[symbol].name;
+    }
+
+    public static synchronized int size() {
+        return size;
+    }
+
+    public static synchronized void retain() {
+        holders++;
+    }
+
+    public static synchronized void release() {
+        if (holders == 0) {
+            throw new IllegalStateException("the symbol table is not retained");
+        }
+        if (--holders == 0 && size > MAX_RETAINED_SIZE) {
+            table = new Table(INITIAL_CAPACITY);
+            size = 0;
+        }
+    }
+
+    private static synchronized Identifier add(String name, int hash) {
+        // Another thread may have added the name (or replaced the table) since the lookup
+        int slot = table.slotOf(name, hash);
+        int symbol = table.slots.get(slot);
+        if (symbol != NONE) {
+            return table.identifiers[symbol];
+        }
+
+        if (size == table.identifiers.length) {
+            table = grow(table, size);
+            slot = table.slotOf(name, hash);
+        }
+        var identifier = new Identifier(name, size++);
+        table.put(identifier, hash, slot);
+        return identifier;
+    }
+
+    private static Table grow(Table table, int size) {
+        Table grown = new Table(2 * table.identifiers.length);
+        for (int symbol = 0; symbol < size; symbol++) {
+            Identifier identifier = table.identifiers[symbol];
+            grown.put(identifier, table.hashes[symbol], grown.slotOf(identifier.name, table.hashes[symbol]));
+        }
+        return grown;
+    }
+
+    private static boolean sameName(String name, char[] chars, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        // Spreading the high bits of the hash into the low bits, which are the only ones the mask keeps
+        return hash ^ (hash >>> 16);
+    }
+}
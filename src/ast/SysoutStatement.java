@@ -19,6 +19,11 @@ public class SysoutStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public Expr arg() {
         return arg.e;
     }
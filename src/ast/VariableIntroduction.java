@@ -1,5 +1,6 @@
 package ast;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlSeeAlso;
 
@@ -10,14 +11,27 @@ public abstract class VariableIntroduction extends AstNode {
     @XmlElement(required = true)
     private String name;
 
+    // The interned symbol of name (see SymbolTable), set along with it
+    private int nameSymbol = SymbolTable.NONE;
+
     // for deserialization only!
     public VariableIntroduction() {
     }
 
+    // Called by JAXB once the fields are unmarshalled
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        nameSymbol = SymbolTable.intern(name);
+    }
+
     public VariableIntroduction(AstType type, String name, int lineNumber) {
+        this(type, SymbolTable.identifier(name), lineNumber);
+    }
+
+    public VariableIntroduction(AstType type, Identifier name, int lineNumber) {
         super(lineNumber);
         this.type = new AstTypeWrapper(type);
-        this.name = name;
+        this.name = name.name;
+        this.nameSymbol = name.symbol;
     }
 
     public AstType type() {
@@ -28,7 +42,12 @@ public abstract class VariableIntroduction extends AstNode {
         return name;
     }
 
+    public int nameSymbol() {
+        return nameSymbol;
+    }
+
     public void setName(String name) {
         this.name = name;
+        this.nameSymbol = SymbolTable.intern(name);
     }
 }
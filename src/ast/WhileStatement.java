@@ -23,6 +23,11 @@ public class WhileStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public <R, C> R accept(ResultVisitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
     public Expr cond() {
         return cond.e;
     }
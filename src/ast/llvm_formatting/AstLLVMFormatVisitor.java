@@ -2,27 +2,52 @@ package ast.llvm_formatting;
 
 import ast.*;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
-public class AstLLVMFormatVisitor implements Visitor {
-    private final Formatter formatter = new Formatter();
+public class AstLLVMFormatVisitor implements ResultVisitor<String, Void> {
+    /* Every expression returns the register (or the constant) that holds its value, and every type its LLVM type.
+     * Every other node returns null. */
+    private final Formatter formatter;
     private String currentClass;
+    private int currentClassSymbol;
     private String currentMethod;
-    private String classOfCalledMethod;
     private final LLVMObjectOrientedUtils OOUtils;
-    private HashMap<String, AstType> methodVariableTypes;
-    private final Stack<String> exprResults = new Stack<>();
+    // Keyed by the interned symbols of the variable names (see SymbolTable)
+    private SymbolMap<AstType> methodVariableTypes;
+    /* The class of the static type of the last expression visited, if it is a class type (and -1 otherwise), which a
+     * method call reads right after visiting its owner expression. Set by the only owners that the semantic checks
+     * allow: this, new A(), variables and method calls. */
+    private int lastClassSymbol = -1;
     private int regCounter = 0;
     private int labelCounter = 0;
 
     public AstLLVMFormatVisitor(Program program) {
         OOUtils = new LLVMObjectOrientedUtils(program);
+        formatter = new Formatter();
+    }
+
+    /* Streams the IR to out instead of keeping it in memory: out is flushed after every method, so only the IR of
+     * the current method is held in memory (given that out is buffered, e.g. a BufferedWriter or a PrintWriter).
+     * getString() is meaningless in this mode. */
+    public AstLLVMFormatVisitor(Program program, Writer out) {
+        OOUtils = new LLVMObjectOrientedUtils(program);
+        formatter = new Formatter(out);
     }
 
     public String getString() {
         return formatter.toString();
     }
 
+    /* Flushes the output, and throws the first write error the formatter has swallowed (if any) */
+    public void flush() throws IOException {
+        formatter.flush();
+        if (formatter.ioException() != null) {
+            throw formatter.ioException();
+        }
+    }
+
     private void formatIndented(String str, Object ... args) {
         formatter.format("\t");
         formatter.format(str, args);
@@ -36,25 +61,36 @@ public class AstLLVMFormatVisitor implements Visitor {
         return labelCounter++;
     }
 
-    @Override
+    private void formatType(AstType type) {
+        formatter.format("%s", type.accept(this, null));
+    }
+
     public void visit(Program program) {
+        program.accept(this, null);
+    }
+
+    @Override
+    public String visit(Program program, Void context) {
         formatVTables(program);
         formatter.format("%s\n\n\n", LLVMConstants.getFunctionDeclarations());
 
-        program.mainClass().accept(this);
+        program.mainClass().accept(this, null);
         formatter.format("\n");
-        for (ClassDecl classdecl : program.classDecls()) {
-            classdecl.accept(this);
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            ClassDecl classdecl = program.classDecl(i);
+            classdecl.accept(this, null);
             formatter.format("\n");  // this is unnecessary, but the examples have it too.
         }
+        return null;
     }
 
     private void formatVTables(Program program) {
         int tableSize;
 
-        for (ClassDecl classdecl : program.classDecls()) {
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            ClassDecl classdecl = program.classDecl(i);
             String className = classdecl.name();
-            List<LLVMObjectOrientedUtils.MethodData> methodsData = OOUtils.getMethodsData(className);
+            List<LLVMObjectOrientedUtils.MethodData> methodsData = OOUtils.getMethodsData(classdecl.nameSymbol());
             tableSize = methodsData.size();
             formatter.format("@.%s_vtable = global [%d x i8*] [", className, tableSize);
             if (tableSize == 0) {
@@ -83,69 +119,81 @@ public class AstLLVMFormatVisitor implements Visitor {
     }
 
     private void formatMethodSignature(AstType returnType, List<AstType> formalArgsTypes) {
-        returnType.accept(this);
+        formatType(returnType);
         formatter.format(" (i8*");
         for (var formalArgType : formalArgsTypes) {
             formatter.format(", ");
-            formalArgType.accept(this);
+            formatType(formalArgType);
         }
         formatter.format(")*");
     }
 
     @Override
-    public void visit(ClassDecl classDecl) {
+    public String visit(ClassDecl classDecl, Void context) {
         currentClass = classDecl.name();
-        for (var methodDecl : classDecl.methoddecls()) {
-            methodDecl.accept(this);
+        currentClassSymbol = classDecl.nameSymbol();
+        for (int i = 0; i < classDecl.methodDeclCount(); i++) {
+            var methodDecl = classDecl.methodDecl(i);
+            methodDecl.accept(this, null);
             formatter.format("\n");
         }
+        return null;
     }
 
     @Override
-    public void visit(MainClass mainClass) {
+    public String visit(MainClass mainClass, Void context) {
         formatter.format("define i32 @main() {\n");
-        mainClass.mainStatement().accept(this);
+        mainClass.mainStatement().accept(this, null);
         formatIndented("ret i32 0\n");
         formatter.format("}\n");
+        formatter.flush();
+        return null;
     }
 
     @Override
-    public void visit(MethodDecl methodDecl) {
+    public String visit(MethodDecl methodDecl, Void context) {
         currentMethod = methodDecl.name();
-        methodVariableTypes = new HashMap<>();
+        methodVariableTypes = new SymbolMap<>();
         regCounter = 0;
 
         formatDefineLine(methodDecl);
-        for (var formal : methodDecl.formals()) {
+        for (int i = 0; i < methodDecl.formalCount(); i++) {
+            var formal = methodDecl.formal(i);
             formatFormalArgRegRenaming(formal);
         }
-        for (var varDecl : methodDecl.vardecls()) {
-            varDecl.accept(this);
+        for (int i = 0; i < methodDecl.varDeclCount(); i++) {
+            var varDecl = methodDecl.varDecl(i);
+            varDecl.accept(this, null);
         }
-        for (var stmt : methodDecl.body()) {
-            stmt.accept(this);
+        for (int i = 0; i < methodDecl.statementCount(); i++) {
+            var stmt = methodDecl.statement(i);
+            stmt.accept(this, null);
         }
         formatReturnLine(methodDecl);
 
         formatter.format("}\n");
+        formatter.flush();
+        return null;
     }
 
     private void formatDefineLine(MethodDecl methodDecl) {
         formatter.format("define ");
-        methodDecl.returnType().accept(this);
+        formatType(methodDecl.returnType());
         formatter.format(" @%s.%s(i8* %%this", currentClass, currentMethod);
-        for (var formal : methodDecl.formals()) {
-            formal.accept(this);
+        for (int i = 0; i < methodDecl.formalCount(); i++) {
+            var formal = methodDecl.formal(i);
+            formal.accept(this, null);
         }
         formatter.format(") {\n");
     }
 
     @Override
-    public void visit(FormalArg formalArg) {
-        methodVariableTypes.put(formalArg.name(), formalArg.type());
+    public String visit(FormalArg formalArg, Void context) {
+        methodVariableTypes.put(formalArg.nameSymbol(), formalArg.type());
         formatter.format(", ");
-        formalArg.type().accept(this);
+        formatType(formalArg.type());
         formatter.format(" %%.%s", formalArg.name());
+        return null;
     }
 
     private void formatFormalArgRegRenaming(FormalArg formalArg) {
@@ -160,174 +208,172 @@ public class AstLLVMFormatVisitor implements Visitor {
 
     private void formatVariableAllocation(VariableIntroduction variable) {
         formatIndented("%%%s = alloca ", variable.name());
-        variable.type().accept(this);
+        formatType(variable.type());
         formatter.format("\n");
     }
 
     private void formatStore(String sourceRegOrValue, String destReg, AstType type) {
         formatIndented("store ");
-        type.accept(this);
+        formatType(type);
         formatter.format(" %s, ", sourceRegOrValue);
-        type.accept(this);
+        formatType(type);
         formatter.format("* %s\n", destReg);
     }
 
     private void formatLoad(String destReg, String sourceReg, AstType type) {
         formatIndented("%s = load ", destReg);
-        type.accept(this);
+        formatType(type);
         formatter.format(", ");
-        type.accept(this);
+        formatType(type);
         formatter.format("* %s\n", sourceReg);
     }
 
     @Override
-    public void visit(VarDecl varDecl) {
-        methodVariableTypes.put(varDecl.name(), varDecl.type());
+    public String visit(VarDecl varDecl, Void context) {
+        methodVariableTypes.put(varDecl.nameSymbol(), varDecl.type());
         formatVariableAllocation(varDecl);
+        return null;
     }
 
     private void formatReturnLine(MethodDecl methodDecl) {
-        methodDecl.ret().accept(this);
+        String ret = methodDecl.ret().accept(this, null);
         formatIndented("ret ");
-        methodDecl.returnType().accept(this);
-        formatter.format(" %s\n", exprResults.pop());
+        formatType(methodDecl.returnType());
+        formatter.format(" %s\n", ret);
     }
 
     @Override
-    public void visit(BlockStatement blockStatement) {
-        for (var s : blockStatement.statements()) {
-            s.accept(this);
+    public String visit(BlockStatement blockStatement, Void context) {
+        for (int i = 0; i < blockStatement.statementCount(); i++) {
+            var s = blockStatement.statement(i);
+            s.accept(this, null);
         }
+        return null;
     }
 
     @Override
-    public void visit(IfStatement ifStatement) {
+    public String visit(IfStatement ifStatement, Void context) {
         int labelPostfix = nextLabelPostfix();
 
         // calculate condition
-        ifStatement.cond().accept(this);
-        String condValue = exprResults.pop();
+        String condValue = ifStatement.cond().accept(this, null);
         formatIndented("br i1 %s, label %%then_case_%d, label %%else_case_%d\n", condValue, labelPostfix, labelPostfix);
 
         // then case
         formatter.format("then_case_%d:\n", labelPostfix);
-        ifStatement.thencase().accept(this);
+        ifStatement.thencase().accept(this, null);
         formatIndented("br label %%if_end_%d\n", labelPostfix);
 
         // else case
         formatter.format("else_case_%d:\n", labelPostfix);
-        ifStatement.elsecase().accept(this);
+        ifStatement.elsecase().accept(this, null);
         formatIndented("br label %%if_end_%d\n", labelPostfix);
 
         // end
         formatter.format("if_end_%d:\n", labelPostfix);
+        return null;
     }
 
     @Override
-    public void visit(WhileStatement whileStatement) {
+    public String visit(WhileStatement whileStatement, Void context) {
         int labelPostfix = nextLabelPostfix();
 
         // calculate condition
         formatIndented("br label %%while_check_cond_%d\n", labelPostfix);
         formatter.format("while_check_cond_%d:\n", labelPostfix);
-        whileStatement.cond().accept(this);
-        String condValue = exprResults.pop();
+        String condValue = whileStatement.cond().accept(this, null);
         formatIndented("br i1 %s, label %%while_body_%d, label %%while_end_%d\n", condValue, labelPostfix, labelPostfix);
 
         // while body
         formatter.format("while_body_%d:\n", labelPostfix);
-        whileStatement.body().accept(this);
+        whileStatement.body().accept(this, null);
         formatIndented("br label %%while_check_cond_%d\n", labelPostfix);
 
         // end
         formatter.format("while_end_%d:\n", labelPostfix);
+        return null;
     }
 
     @Override
-    public void visit(SysoutStatement sysoutStatement) {
-        sysoutStatement.arg().accept(this);
-        formatIndented("call void (i32) @print_int(i32 %s)\n", exprResults.pop());
+    public String visit(SysoutStatement sysoutStatement, Void context) {
+        String arg = sysoutStatement.arg().accept(this, null);
+        formatIndented("call void (i32) @print_int(i32 %s)\n", arg);
+        return null;
     }
 
     @Override
-    public void visit(AssignStatement assignStatement) {
-        assignStatement.rv().accept(this);
-        String rv = exprResults.pop();
+    public String visit(AssignStatement assignStatement, Void context) {
+        String rv = assignStatement.rv().accept(this, null);
 
-        AstType lvType = formatAssignmentLv(assignStatement.lv());
-        String destRegister = exprResults.pop();
+        String destRegister = formatVariablePtr(assignStatement.lv(), assignStatement.lvSymbol());
 
-        formatStore(rv, destRegister, lvType);
+        formatStore(rv, destRegister, variableType(assignStatement.lvSymbol()));
+        return null;
     }
 
-    private AstType formatAssignmentLv(String lv) {
-        String destRegister;
-        AstType lvType;
-
-        if (!methodVariableTypes.containsKey(lv)) {
-            destRegister = loadFieldToRegister(lv);
-            lvType = OOUtils.getFieldType(currentClass, lv);
-        } else {
-            destRegister = "%" + lv;
-            lvType = methodVariableTypes.get(lv);
+    /* The static type of a local variable, a formal argument or a field of the current class */
+    private AstType variableType(int symbol) {
+        AstType type = methodVariableTypes.get(symbol);
+        if (type == null) {
+            type = OOUtils.getFieldType(currentClassSymbol, symbol);
         }
+        return type;
+    }
 
-        exprResults.push(destRegister);
-        return lvType;
+    private String formatVariablePtr(String lv, int lvSymbol) {
+        if (methodVariableTypes.containsKey(lvSymbol)) {
+            return "%" + lv;
+        }
+        return loadFieldToRegister(lvSymbol);
     }
-    private String loadFieldToRegister(String fieldName) {
+
+    private String loadFieldToRegister(int fieldSymbol) {
         String tempRegister = nextAnonymousReg();
         formatIndented("%s = getelementptr i8, i8* %%this, i32 %d\n", 
-                tempRegister, OOUtils.getFieldOffset(currentClass, fieldName));
+                tempRegister, OOUtils.getFieldOffset(currentClassSymbol, fieldSymbol));
         String destRegister = nextAnonymousReg();
         formatIndented("%s = bitcast i8* %s to ", destRegister, tempRegister);
-        OOUtils.getFieldType(currentClass, fieldName).accept(this);
+        formatType(OOUtils.getFieldType(currentClassSymbol, fieldSymbol));
         formatter.format("*\n");
         return destRegister;
     }
 
     @Override
-    public void visit(AssignArrayStatement assignArrayStatement) {
-        AstType lvType = formatAssignmentLv(assignArrayStatement.lv());
-        String arrayPtrReg = exprResults.pop();
+    public String visit(AssignArrayStatement assignArrayStatement, Void context) {
+        String arrayPtrReg = formatVariablePtr(assignArrayStatement.lv(), assignArrayStatement.lvSymbol());
 
-        assignArrayStatement.index().accept(this);
-        String index = exprResults.pop();
+        String index = assignArrayStatement.index().accept(this, null);
 
         // load the address to the array
         String arrayReg = nextAnonymousReg();
         formatIndented("%s = load i32*, i32** %s\n", arrayReg, arrayPtrReg);
 
         // get pointer to array element
-        formatGetArrayElementPtr(arrayReg, index);
-        String elementPtrReg = exprResults.pop();
+        String elementPtrReg = formatGetArrayElementPtr(arrayReg, index);
 
-        assignArrayStatement.rv().accept(this);
-        String rv = exprResults.pop();
+        String rv = assignArrayStatement.rv().accept(this, null);
 
         // store value in element pointer
         formatIndented("store i32 %s, i32* %s\n", rv, elementPtrReg);
+        return null;
     }
 
-    private void visitArithmeticBinaryExpr(BinaryExpr e, String op) {
+    private String visitArithmeticBinaryExpr(BinaryExpr e, String op) {
         // Note: we only use this to format arithmetic operations ("+", "-" and "*")
         // so the return type is always i32.
-        e.e1().accept(this);
-        String value1 = exprResults.pop();
-        e.e2().accept(this);
-        String value2 = exprResults.pop();
+        String value1 = e.e1().accept(this, null);
+        String value2 = e.e2().accept(this, null);
         String resultReg = nextAnonymousReg();
         formatIndented("%s = %s i32 %s, %s\n", resultReg, op, value1, value2);
-        exprResults.push(resultReg);
+        return resultReg;
     }
 
     @Override
-    public void visit(AndExpr e) {
+    public String visit(AndExpr e, Void context) {
         int labelPostfix = nextLabelPostfix();
 
         // calculate first expression
-        e.e1().accept(this);
-        String value1 = exprResults.pop();
+        String value1 = e.e1().accept(this, null);
         formatIndented("br label %%and_left_cond_%d\n", labelPostfix);
 
         // check first expression's result
@@ -337,8 +383,7 @@ public class AstLLVMFormatVisitor implements Visitor {
 
         // calculate second expression's result
         formatter.format("and_check_right_cond_%d:\n", labelPostfix);
-        e.e2().accept(this);
-        String value2 = exprResults.pop();
+        String value2 = e.e2().accept(this, null);
         formatIndented("br label %%and_right_cond_%d\n", labelPostfix);
 
         // jump to the result calculation
@@ -350,61 +395,56 @@ public class AstLLVMFormatVisitor implements Visitor {
         formatter.format("and_result_%d:\n", labelPostfix);
         formatIndented("%s = phi i1 [0, %%and_left_cond_%d], [%s, %%and_right_cond_%d]\n",
                 resultReg, labelPostfix, value2, labelPostfix);
-        exprResults.push(resultReg);
+        return resultReg;
     }
 
     @Override
-    public void visit(LtExpr e) {
-        e.e1().accept(this);
-        String value1 = exprResults.pop();
-        e.e2().accept(this);
-        String value2 = exprResults.pop();
+    public String visit(LtExpr e, Void context) {
+        String value1 = e.e1().accept(this, null);
+        String value2 = e.e2().accept(this, null);
         String resultReg = nextAnonymousReg();
         formatIndented("%s = icmp slt i32 %s, %s\n", resultReg, value1, value2);
-        exprResults.push(resultReg);
+        return resultReg;
     }
     
     @Override
-    public void visit(NotExpr e) {
-        e.e().accept(this);
+    public String visit(NotExpr e, Void context) {
+        String value = e.e().accept(this, null);
         String resultReg = nextAnonymousReg();
-        formatIndented("%s = sub i1 1, %s\n", resultReg, exprResults.pop());
-        exprResults.push(resultReg);
+        formatIndented("%s = sub i1 1, %s\n", resultReg, value);
+        return resultReg;
     }
     
     @Override
-    public void visit(AddExpr e) {
-        visitArithmeticBinaryExpr(e, "add");
+    public String visit(AddExpr e, Void context) {
+        return visitArithmeticBinaryExpr(e, "add");
     }
 
     @Override
-    public void visit(SubtractExpr e) {
-        visitArithmeticBinaryExpr(e, "sub");
+    public String visit(SubtractExpr e, Void context) {
+        return visitArithmeticBinaryExpr(e, "sub");
     }
 
     @Override
-    public void visit(MultExpr e) {
-        visitArithmeticBinaryExpr(e, "mul");
+    public String visit(MultExpr e, Void context) {
+        return visitArithmeticBinaryExpr(e, "mul");
     }
 
     @Override
-    public void visit(ArrayAccessExpr e) {
-        e.arrayExpr().accept(this);
-        String arrayPtrReg = exprResults.pop();
+    public String visit(ArrayAccessExpr e, Void context) {
+        String arrayPtrReg = e.arrayExpr().accept(this, null);
 
-        e.indexExpr().accept(this);
-        String index = exprResults.pop();
+        String index = e.indexExpr().accept(this, null);
 
-        formatGetArrayElementPtr(arrayPtrReg, index);
-        String elementPtrReg = exprResults.pop();
+        String elementPtrReg = formatGetArrayElementPtr(arrayPtrReg, index);
         // load element to get the value
         String elementValueReg = nextAnonymousReg();
         formatIndented("%s = load i32, i32* %s\n", elementValueReg, elementPtrReg);
 
-        exprResults.push(elementValueReg);
+        return elementValueReg;
     }
 
-    private void formatGetArrayElementPtr(String arrayReg, String index) {
+    private String formatGetArrayElementPtr(String arrayReg, String index) {
         // check that the index is greater than 0
         int labelPostfix = nextLabelPostfix();
         String cmpReg = nextAnonymousReg();
@@ -440,26 +480,29 @@ public class AstLLVMFormatVisitor implements Visitor {
         String elementPtrReg = nextAnonymousReg();
         formatIndented("%s = getelementptr i32, i32* %s, i32 %s\n", elementPtrReg, arrayReg, indexReg);
 
-        exprResults.push(elementPtrReg);
+        return elementPtrReg;
     }
 
     @Override
-    public void visit(ArrayLengthExpr e) {
-        e.arrayExpr().accept(this);
-        String elementPtrReg = exprResults.pop();
+    public String visit(ArrayLengthExpr e, Void context) {
+        String elementPtrReg = e.arrayExpr().accept(this, null);
 
         // load element pointer to get the value
         String elementValueReg = nextAnonymousReg();
         formatIndented("%s = load i32, i32* %s\n", elementValueReg, elementPtrReg);
 
-        exprResults.push(elementValueReg);
+        return elementValueReg;
     }
 
 
     @Override
-    public void visit(MethodCallExpr e) {
-        e.ownerExpr().accept(this);
-        String ownerReg = exprResults.pop();
+    public String visit(MethodCallExpr e, Void context) {
+        lastClassSymbol = -1;
+        String ownerReg = e.ownerExpr().accept(this, null);
+        int classOfCalledMethod = lastClassSymbol;
+        if (classOfCalledMethod < 0) {
+            throw new IllegalArgumentException("Method call owner expression is not an object");
+        }
 
         // bitcast to pointer to the vtable
         String vtablePtrReg = nextAnonymousReg();
@@ -471,15 +514,15 @@ public class AstLLVMFormatVisitor implements Visitor {
 
         // get a pointer to the method's element in the vtable
         String methodElementReg = nextAnonymousReg();
-        int methodIndex = OOUtils.getMethodIndex(classOfCalledMethod, e.methodId());
+        int methodIndex = OOUtils.getMethodIndex(classOfCalledMethod, e.methodIdSymbol());
         formatIndented("%s = getelementptr i8*, i8** %s, i32 %d\n", methodElementReg, vtableReg, methodIndex);
 
         // load element to get the pointer to the method
         String tempMethodPtrReg = nextAnonymousReg();
         formatIndented("%s = load i8*, i8** %s\n", tempMethodPtrReg, methodElementReg);
 
-        AstType returnType = OOUtils.getMethodReturnType(classOfCalledMethod, e.methodId());
-        List<AstType> formalArgsTypes = OOUtils.getMethodFormalArgsTypes(classOfCalledMethod, e.methodId());
+        AstType returnType = OOUtils.getMethodReturnType(classOfCalledMethod, e.methodIdSymbol());
+        List<AstType> formalArgsTypes = OOUtils.getMethodFormalArgsTypes(classOfCalledMethod, e.methodIdSymbol());
 
         // bitcast to a pointer of a method with the exact signature
         String methodPtrReg = nextAnonymousReg();
@@ -487,84 +530,74 @@ public class AstLLVMFormatVisitor implements Visitor {
         formatMethodSignature(returnType, formalArgsTypes);
         formatter.format("\n");
 
-        // make method call
-        formatMethodCall(methodPtrReg, ownerReg, e.actuals(), returnType, formalArgsTypes);
+        // make method call (after the actuals, which may be method calls themselves)
+        String resultReg = formatMethodCall(methodPtrReg, ownerReg, e, returnType, formalArgsTypes);
+        lastClassSymbol = classSymbol(returnType);
+        return resultReg;
+    }
+
+    private static int classSymbol(AstType type) {
+        return type instanceof RefType ? ((RefType) type).idSymbol() : -1;
     }
 
-    private void formatMethodCall(String methodPtrReg, String ownerReg, List<Expr> actuals,
+    private String formatMethodCall(String methodPtrReg, String ownerReg, MethodCallExpr e,
                                   AstType returnType, List<AstType> formalArgsTypes) {
-        List<String> actualValues = new ArrayList<>();
-        for (var actual : actuals) {
-            actual.accept(this);
-            actualValues.add(exprResults.pop());
+        List<String> actualValues = new ArrayList<>(e.actualCount());
+        for (int i = 0; i < e.actualCount(); i++) {
+            actualValues.add(e.actual(i).accept(this, null));
         }
 
         String resultReg = nextAnonymousReg();
         formatIndented("%s = call ", resultReg);
-        returnType.accept(this);
+        formatType(returnType);
         formatter.format(" %s(i8* %s", methodPtrReg, ownerReg);
-        for (int i = 0; i < actuals.size(); i++) {
+        for (int i = 0; i < actualValues.size(); i++) {
             formatter.format(", ");
-            formalArgsTypes.get(i).accept(this);
+            formatType(formalArgsTypes.get(i));
             formatter.format(" ");
             formatter.format("%s", actualValues.get(i));
         }
         formatter.format(")\n");
-        exprResults.push(resultReg);
+        return resultReg;
     }
 
     @Override
-    public void visit(IntegerLiteralExpr e) {
-        exprResults.push(Integer.toString(e.num()));
+    public String visit(IntegerLiteralExpr e, Void context) {
+        return Integer.toString(e.num());
     }
 
     @Override
-    public void visit(TrueExpr e) {
-        exprResults.push("1");
+    public String visit(TrueExpr e, Void context) {
+        return "1";
     }
 
     @Override
-    public void visit(FalseExpr e) {
-        exprResults.push("0");
+    public String visit(FalseExpr e, Void context) {
+        return "0";
     }
 
     @Override
-    public void visit(IdentifierExpr e) {
-        String identifierReg;
-        AstType type;
-        if (!methodVariableTypes.containsKey(e.id())) {
-            identifierReg = loadFieldToRegister(e.id());
-            type = OOUtils.getFieldType(currentClass, e.id());
-        } else {
-            identifierReg = "%" + e.id();
-            type = methodVariableTypes.get(e.id());
-        }
-
-        // In case we got here from a method call expression (as the owner expression),
-        // save the class name to classOfCalledMethod
-        if (type instanceof RefType) {
-            classOfCalledMethod = ((RefType) type).id();
-        }
+    public String visit(IdentifierExpr e, Void context) {
+        String identifierReg = formatVariablePtr(e.id(), e.idSymbol());
+        AstType type = variableType(e.idSymbol());
 
         // Load value referenced by the identifierReg
         String valueReg = nextAnonymousReg();
         formatLoad(valueReg, identifierReg, type);
-        exprResults.push(valueReg);
+        lastClassSymbol = classSymbol(type);
+        return valueReg;
 
     }
 
-    public void visit(ThisExpr e) {
-        // In case we got here from a method call expression (as the owner expression),
-        // save the class name to classOfCalledMethod
-        classOfCalledMethod = currentClass;
-
-        exprResults.push("%this");
+    @Override
+    public String visit(ThisExpr e, Void context) {
+        lastClassSymbol = currentClassSymbol;
+        return "%this";
     }
 
     @Override
-    public void visit(NewIntArrayExpr e) {
-        e.lengthExpr().accept(this);
-        String arrayLength = exprResults.pop();
+    public String visit(NewIntArrayExpr e, Void context) {
+        String arrayLength = e.lengthExpr().accept(this, null);
 
         // format array length validation
         String cmpReg = nextAnonymousReg();
@@ -587,45 +620,42 @@ public class AstLLVMFormatVisitor implements Visitor {
         String arrayReg = nextAnonymousReg();
         formatIndented("%s = bitcast i8* %s to i32*\n", arrayReg, tempReg);
         formatIndented("store i32 %s, i32* %s\n", arrayLength, arrayReg);
-        exprResults.push(arrayReg);
+        return arrayReg;
     }
 
     @Override
-    public void visit(NewObjectExpr e) {
+    public String visit(NewObjectExpr e, Void context) {
         String instanceReg = nextAnonymousReg();
-        formatIndented("%s = call i8* @calloc(i32 1, i32 %d)\n", instanceReg, OOUtils.getInstanceSize(e.classId()));
+        formatIndented("%s = call i8* @calloc(i32 1, i32 %d)\n", instanceReg, OOUtils.getInstanceSize(e.classIdSymbol()));
         String vtablePtrReg = nextAnonymousReg();
         formatIndented("%s = bitcast i8* %s to i8***\n", vtablePtrReg, instanceReg);
         String vtableFirstElementReg = nextAnonymousReg();
-        int numOfMethods = OOUtils.getNumberOfMethods(e.classId());
+        int numOfMethods = OOUtils.getNumberOfMethods(e.classIdSymbol());
         formatIndented("%s = getelementptr [%d x i8*], [%d x i8*]* @.%s_vtable, i32 0, i32 0\n",
                 vtableFirstElementReg, numOfMethods, numOfMethods, e.classId());
         formatIndented("store i8** %s, i8*** %s\n", vtableFirstElementReg, vtablePtrReg);
 
-        // In case we got here from a method call expression (as the owner expression),
-        // save the class name to classOfCalledMethod
-        classOfCalledMethod = e.classId();
-
-        exprResults.push(instanceReg);
+        lastClassSymbol = e.classIdSymbol();
+        return instanceReg;
     }
 
     @Override
-    public void visit(IntAstType t) {
-        formatter.format("i32");
+    public String visit(IntAstType t, Void context) {
+        return "i32";
     }
 
     @Override
-    public void visit(BoolAstType t) {
-        formatter.format("i1");
+    public String visit(BoolAstType t, Void context) {
+        return "i1";
     }
 
     @Override
-    public void visit(IntArrayAstType t) {
-        formatter.format("i32*");
+    public String visit(IntArrayAstType t, Void context) {
+        return "i32*";
     }
 
     @Override
-    public void visit(RefType t) {
-        formatter.format("i8*");
+    public String visit(RefType t, Void context) {
+        return "i8*";
     }
 }
@@ -7,8 +7,10 @@ import java.util.stream.Collectors;
 
 public class LLVMObjectOrientedUtils {
 
-    Map<String, Map<String, MethodData>> classToMethodsMapping;
-    Map<String, Map<String, FieldData>> classToFieldsMapping;
+    /* All the tables are keyed by the interned symbols of the class, method and field names (see SymbolTable) */
+    SymbolMap<SymbolMap<MethodData>> classToMethodsMapping;
+    SymbolMap<SymbolMap<FieldData>> classToFieldsMapping;
+    SymbolMap<Integer> classToInstanceSize;
 
     public static class MethodData {
         String declaringClass;
@@ -47,59 +49,46 @@ public class LLVMObjectOrientedUtils {
 
     public static class FieldData {
         final VarDecl varDecl;
-        final int index;
+        final int offset;
 
-        private FieldData(VarDecl varDecl, int index) {
+        private FieldData(VarDecl varDecl, int offset) {
             this.varDecl = varDecl;
-            this.index = index;
+            this.offset = offset;
         }
     }
 
     public LLVMObjectOrientedUtils(Program program) {
         classToMethodsMapping = createClassToMethodsMapping(program);
+        classToInstanceSize = new SymbolMap<>();
         classToFieldsMapping = createClassToFieldsMapping(program);
     }
 
-    public int getFieldOffset(String className, String fieldName) {
-        // The first field of each class starts at offset 8, since the first 8 bytes are the reference to the V-table
-        int offset = 8;
-
-        List<FieldData> sortedFields = classToFieldsMapping.get(className).values().stream()
-                .sorted(Comparator.comparing((fieldData) -> fieldData.index))
-                .collect(Collectors.toList());
-
-        for (var field : sortedFields) {
-            if (field.varDecl.name().equals(fieldName))
-                return offset;
-
-            offset += typeToSize(field.varDecl.type());
-        }
-
-        return offset;
+    public int getFieldOffset(int classSymbol, int fieldSymbol) {
+        return classToFieldsMapping.get(classSymbol).get(fieldSymbol).offset;
     }
 
-    public AstType getFieldType(String className, String fieldName) {
-        return classToFieldsMapping.get(className).get(fieldName).varDecl.type();
+    public AstType getFieldType(int classSymbol, int fieldSymbol) {
+        return classToFieldsMapping.get(classSymbol).get(fieldSymbol).varDecl.type();
     }
 
-    public int getMethodIndex(String className, String methodName) {
-        return classToMethodsMapping.get(className).get(methodName).index;
+    public int getMethodIndex(int classSymbol, int methodSymbol) {
+        return classToMethodsMapping.get(classSymbol).get(methodSymbol).index;
     }
 
-    public AstType getMethodReturnType(String className, String methodName) {
-        return classToMethodsMapping.get(className).get(methodName).returnType;
+    public AstType getMethodReturnType(int classSymbol, int methodSymbol) {
+        return classToMethodsMapping.get(classSymbol).get(methodSymbol).returnType;
     }
 
-    public List<AstType> getMethodFormalArgsTypes(String className, String methodName) {
-        return classToMethodsMapping.get(className).get(methodName).formalArgsTypes;
+    public List<AstType> getMethodFormalArgsTypes(int classSymbol, int methodSymbol) {
+        return classToMethodsMapping.get(classSymbol).get(methodSymbol).formalArgsTypes;
     }
 
-    public int getInstanceSize(String className) {
-        return getFieldOffset(className, null);
+    public int getInstanceSize(int classSymbol) {
+        return classToInstanceSize.get(classSymbol);
     }
 
-    public int getNumberOfMethods(String className) {
-        return classToMethodsMapping.get(className).size();
+    public int getNumberOfMethods(int classSymbol) {
+        return classToMethodsMapping.get(classSymbol).size();
     }
 
     private int typeToSize(AstType type) {
@@ -112,96 +101,75 @@ public class LLVMObjectOrientedUtils {
         return 8;
     }
 
-    private Map<String, Map<String, MethodData>> createClassToMethodsMapping(Program program) {
+    private SymbolMap<SymbolMap<MethodData>> createClassToMethodsMapping(Program program) {
         /* Creating a mapping between each class in the program to its methods, while taking inheritance into account.
         * Each method has a saved index, which is consistent throughout inheritance */
-        Map<String, Map<String, MethodData>> classToMethodsMapping = new HashMap<>();
+        SymbolMap<SymbolMap<MethodData>> classToMethodsMapping = new SymbolMap<>();
 
-        Map<String, MethodData> classMethods;
+        SymbolMap<MethodData> classMethods;
         int index;
         for (ClassDecl classNode : program.classDecls()) {
-            classMethods = new HashMap<>();
-
             if (classNode.superName() != null) {
                 // The class has a super class, hence its inheriting its methods
-                classMethods.putAll(classToMethodsMapping.get(classNode.superName()));
+                classMethods = new SymbolMap<>(classToMethodsMapping.get(classNode.superNameSymbol()));
+            } else {
+                classMethods = new SymbolMap<>();
             }
 
             index = classMethods.size();
             for (MethodDecl methodNode : classNode.methoddecls()) {
-                if (classMethods.containsKey(methodNode.name())) {
+                MethodData baseMethodData = classMethods.get(methodNode.nameSymbol());
+                if (baseMethodData != null) {
                     // A method can override an inherited class. In that case it shouldn't be re-added to the list,
                     // but we should update the name of the declaring class
-                    MethodData baseMethodData = classMethods.remove(methodNode.name());
-                    classMethods.put(methodNode.name(), baseMethodData.getRedeclaredCopy(classNode.name()));
+                    classMethods.put(methodNode.nameSymbol(), baseMethodData.getRedeclaredCopy(classNode.name()));
                 } else {
-                    classMethods.put(methodNode.name(), new MethodData(classNode.name(), methodNode, index));
+                    classMethods.put(methodNode.nameSymbol(), new MethodData(classNode.name(), methodNode, index));
                     index++;
                 }
             }
-            classToMethodsMapping.put(classNode.name(), classMethods);
+            classToMethodsMapping.put(classNode.nameSymbol(), classMethods);
         }
 
         return classToMethodsMapping;
     }
 
-    private Map<String, Map<String, FieldData>> createClassToFieldsMapping(Program program) {
-        /* Creating a mapping between each class in the program to its fields, while taking inheritance into account. */
-        Map<String, Map<String, FieldData>> classToFieldsMapping = new HashMap<>();
+    private SymbolMap<SymbolMap<FieldData>> createClassToFieldsMapping(Program program) {
+        /* Creating a mapping between each class in the program to its fields, while taking inheritance into account.
+         * The offsets of the fields (and the instance sizes of the classes) are laid out here once, in the order of
+         * declaration with the inherited fields first */
+        SymbolMap<SymbolMap<FieldData>> classToFieldsMapping = new SymbolMap<>();
 
-        Map<String, FieldData> classFields;
+        SymbolMap<FieldData> classFields;
+        int offset;
         for (ClassDecl classNode : program.classDecls()) {
-            classFields = new HashMap<>();
-
             if (classNode.superName() != null) {
                 // The class has a super class, hence its inheriting its fields
-                classFields.putAll(classToFieldsMapping.get(classNode.superName()));
+                classFields = new SymbolMap<>(classToFieldsMapping.get(classNode.superNameSymbol()));
+                offset = classToInstanceSize.get(classNode.superNameSymbol());
+            } else {
+                classFields = new SymbolMap<>();
+                // The first field of each class starts at offset 8, since the first 8 bytes are the reference to
+                // the V-table
+                offset = 8;
             }
 
-            int index = classFields.size();
             for (VarDecl field : classNode.fields()) {
-                classFields.put(field.name(), new FieldData(field, index++));
+                classFields.put(field.nameSymbol(), new FieldData(field, offset));
+                offset += typeToSize(field.type());
             }
 
-            classToFieldsMapping.put(classNode.name(), classFields);
+            classToFieldsMapping.put(classNode.nameSymbol(), classFields);
+            classToInstanceSize.put(classNode.nameSymbol(), offset);
         }
 
         return classToFieldsMapping;
     }
 
-    public List<MethodData> getMethodsData(String className) {
-        Map<String, MethodData> methodsMapping = classToMethodsMapping.get(className);
+    public List<MethodData> getMethodsData(int classSymbol) {
+        SymbolMap<MethodData> methodsMapping = classToMethodsMapping.get(classSymbol);
         return methodsMapping.values().stream()
                 .sorted(Comparator.comparing((methodData) -> methodData.index))
                 .collect(Collectors.toList());
     }
-
-    public Formatter getVTablesFormatter() {
-        Formatter formatter = new Formatter();
-
-        Map<String, String> methodsFormatting;
-        MethodData methodData;
-        int tableSize;
-        for (String className : classToMethodsMapping.keySet()) {
-            tableSize = classToMethodsMapping.get(className).size();
-            formatter.format("@.%s_vtable = global [%d x i8*] [", className, tableSize);
-
-            methodsFormatting = new HashMap<>();
-            for (String methodName : classToMethodsMapping.get(className).keySet()) {
-                methodData = classToMethodsMapping.get(className).get(methodName);
-                methodsFormatting.put(Integer.toString(methodData.index),
-                        String.format("i8* bitcast (i32 (i8*, i32)* @%s.%s to i8*)", className, methodName));
-
-            }
-            for (int index = 0; index < tableSize; index++) {
-                formatter.format(methodsFormatting.get(Integer.toString(index)));
-                if (index < tableSize - 1)
-                    formatter.format(", ");
-            }
-
-            formatter.format("]\n");
-        }
-
-        return formatter;
-    }
 }
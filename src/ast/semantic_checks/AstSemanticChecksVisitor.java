@@ -5,21 +5,28 @@ import ast.*;
 
 import java.util.*;
 
-public class AstSemanticChecksVisitor implements Visitor {
+public class AstSemanticChecksVisitor implements ResultVisitor<AstType, Void> {
+    /* Every expression (and type) returns its static type, and every other node null. A check that fails prints its
+     * reason and clears isValid, and then the node returns null, and so do all the nodes up to the program. */
     private boolean isValid = true;
+    // The reasons of the failed checks, as printed
+    private final StringBuilder reasons = new StringBuilder();
     private String currentClass;
+    private int currentClassSymbol;
     private String mainClassName;
     private String currentMethod;
-    private String lastVisitedClassType;
     private final ObjectOrientedUtils OOUtils;
     private final SemanticChecksUtils SCUtils;
-    private HashMap<String, AstType> methodVariableTypes = new HashMap<>();;
+    private final TypeTable types;
+    // Keyed by the interned symbols of the variable names (see SymbolTable)
+    private SymbolMap<AstType> methodVariableTypes = new SymbolMap<>();
     private HashMap<String, InitializationState> methodVariablesInitializationStates = new HashMap<>();
-    private final Stack<AstType> typesStack = new Stack<>();
-    Map<String, Set<String>> classToSuperClasses = new HashMap<>();
+    private final ClassHierarchy hierarchy;
 
     public AstSemanticChecksVisitor(Program program) {
-        OOUtils = new ObjectOrientedUtils(program);
+        hierarchy = new ClassHierarchy(program);
+        types = new TypeTable(program);
+        OOUtils = new ObjectOrientedUtils(program, hierarchy, types);
         SCUtils = new SemanticChecksUtils();
     }
 
@@ -31,25 +38,43 @@ public class AstSemanticChecksVisitor implements Visitor {
         }
     }
 
+    // The text that the failed checks printed to System.out (kept by the compilation cache, see CompilationCache)
+    public String getReasons() {
+        return reasons.toString();
+    }
+
     private void setInvalid(String reason) {
         this.isValid = false;
         System.out.println(reason);
+        reasons.append(reason).append(System.lineSeparator());
     }
     
-    private boolean notSubClass(String subClassName, String parentClassName) {
-        if (subClassName.equals(parentClassName)) {
+    private boolean notSubClass(RefType subType, RefType parentType) {
+        if (subType.idSymbol() == parentType.idSymbol()) {
             return false;
         }
-        return !this.classToSuperClasses.get(subClassName).contains(parentClassName);
+        int node = hierarchy.nodeOf(subType.idSymbol());
+        int parent = hierarchy.nodeOf(parentType.idSymbol());
+        return node == ClassHierarchy.NO_CLASS || parent == ClassHierarchy.NO_CLASS
+                || !hierarchy.isSubclass(node, parent);
+    }
+
+    /* Both types are canonical (see TypeTable), so equal types are the same object */
+    private boolean isSubtype(AstType subType, AstType superType) {
+        if (subType == superType) {
+            return true;
+        }
+        return subType instanceof RefType && superType instanceof RefType
+                && !notSubClass((RefType) subType, (RefType) superType);
     }
 
-    private void updateClassToSuperClasses(ClassDecl classDecl) {
+    private void checkSuperClass(ClassDecl classDecl, int node) {
         if (classDecl.superName() == null) {
-            this.classToSuperClasses.put(classDecl.name(), new HashSet<>());
             return;
         }
 
-        if (!this.classToSuperClasses.containsKey(classDecl.superName())) {
+        int superNode = hierarchy.superclass(node);
+        if (superNode == ClassHierarchy.NO_CLASS) {
             if (classDecl.superName().equals(classDecl.name())) {  // 1: Class does not extend itself (directly)
                 setInvalid(String.format("Class '%s' extends itself", classDecl.name()));
             } else { // 1: Class is declared after the class it's extending
@@ -59,241 +84,243 @@ public class AstSemanticChecksVisitor implements Visitor {
             return;
         }
 
-        // 1: Class does not extend itself (indirectly)
-        if (this.classToSuperClasses.get(classDecl.superName()).contains(classDecl.name())) {
+        // 1: Class does not extend itself (indirectly), which takes an earlier class of the same name
+        int firstNode = hierarchy.nodeOf(classDecl.nameSymbol());
+        if (firstNode != superNode && hierarchy.isSubclass(superNode, firstNode)) {
             setInvalid(String.format("Class '%s' (indirectly) extends itself", classDecl.name()));
-            return;
         }
+    }
 
-        HashSet<String> superClasses = new HashSet<>(this.classToSuperClasses.get(classDecl.superName()));
-        superClasses.add(classDecl.superName());
-        this.classToSuperClasses.put(classDecl.name(), superClasses);
+    public void visit(Program program) {
+        program.accept(this, null);
     }
 
     @Override
-    public void visit(Program program) {
-        program.mainClass().accept(this);
+    public AstType visit(Program program, Void context) {
+        program.mainClass().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
         // 3: Making sure the same name cannot be used for 2 classes (including main)
         HashSet<String> classNames = new HashSet<>();
         this.mainClassName = program.mainClass().name();
 
-        for (ClassDecl classDecl : program.classDecls()) {
-            updateClassToSuperClasses(classDecl);
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            checkSuperClass(program.classDecl(i), i + 1);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
 
         classNames.add(this.mainClassName);
-        for (ClassDecl classDecl : program.classDecls()) {
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            ClassDecl classDecl = program.classDecl(i);
             String className = classDecl.name();
             if (classNames.contains(className)) {
                 setInvalid(String.format("Class Name %s declared more than once", className));
-                return;
+                return null;
             } else {
                 classNames.add(className);
             }
 
-            classDecl.accept(this);
+            classDecl.accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
+        return null;
     }
 
     @Override
-    public void visit(ClassDecl classDecl) {
+    public AstType visit(ClassDecl classDecl, Void context) {
         // 2: Make sure the main class is not extended
         if (classDecl.superName() != null && classDecl.superName().equals(this.mainClassName)) {
             setInvalid(String.format("The main class (class '%s') cannot be extended", this.mainClassName));
-            return;
+            return null;
         }
 
         currentClass = classDecl.name();
+        currentClassSymbol = classDecl.nameSymbol();
 
         // 6: Method overriding is done correctly
         HashSet<String> methodNames = new HashSet<>();
-        for (var methodDecl : classDecl.methoddecls()) {
+        for (int j = 0; j < classDecl.methodDeclCount(); j++) {
+            var methodDecl = classDecl.methodDecl(j);
             String methodName = methodDecl.name();
-            if (classDecl.superName() != null && OOUtils.hasMethod(classDecl.superName(), methodName)) {
+            int methodSymbol = methodDecl.nameSymbol();
+            if (classDecl.superName() != null && OOUtils.hasMethod(classDecl.superNameSymbol(), methodSymbol)) {
                 // Check same number of args
-                List<AstType> superFormalArgsTypes = OOUtils.getMethodFormalArgsTypes(classDecl.superName(), methodName);
-                if (superFormalArgsTypes.size() != methodDecl.formals().size()) {
+                List<AstType> superFormalArgsTypes = OOUtils.getMethodFormalArgsTypes(classDecl.superNameSymbol(), methodSymbol);
+                if (superFormalArgsTypes.size() != methodDecl.formalCount()) {
                     setInvalid(String.format("Overriding method %s in class %s with the wrong number of formal arguments",
                             methodName, classDecl.name()));
-                    return;
+                    return null;
                 }
 
                 // Check same static types
                 for (int i = 0; i < superFormalArgsTypes.size(); i++) {
                     AstType superFormalArgType = superFormalArgsTypes.get(i);
-                    AstType formalArgType = methodDecl.formals().get(i).type();
-                    if (superFormalArgType.getClass() != formalArgType.getClass()) {
+                    AstType formalArgType = types.canonical(methodDecl.formal(i).type());
+                    if (superFormalArgType != formalArgType) {
                         setInvalid(String.format("Overriding method %s in class %s with the wrong formal arguments types",
                                 methodName, classDecl.name()));
-                        return;
-                    } else if (superFormalArgType instanceof RefType) {
-                        if (!(((RefType) superFormalArgType).id().equals(((RefType) formalArgType).id()))) {
-                            setInvalid(String.format("Overriding method %s in class %s with the wrong formal arguments types",
-                                    methodName, classDecl.name()));
-                            return;
-                        }
+                        return null;
                     }
                 }
 
                 // Check covariant static return type
-                AstType superReturnType = OOUtils.getMethodReturnType(classDecl.superName(), methodName);
-                if (methodDecl.returnType().getClass() != superReturnType.getClass()) {
+                AstType superReturnType = OOUtils.getMethodReturnType(classDecl.superNameSymbol(), methodSymbol);
+                if (!isSubtype(types.canonical(methodDecl.returnType()), superReturnType)) {
                     setInvalid(String.format("Overriding method %s in class %s with the wrong return type",
                             methodName, classDecl.name()));
-                    return;
-                } else if (superReturnType instanceof RefType) {
-                    if (notSubClass(((RefType) methodDecl.returnType()).id(), ((RefType) superReturnType).id())) {
-                        setInvalid(String.format("Overriding method %s in class %s with the wrong return type",
-                                methodName, classDecl.name()));
-                        return;
-                    }
+                    return null;
                 }
             }
 
             // 5: Two methods with the same name can't be defined for the same class (no overloading)
             if (methodNames.contains(methodName)) {
                 setInvalid(String.format("Method name %s declared more than once in class %s", methodName, classDecl.name()));
-                return;
+                return null;
             } else {
                 methodNames.add(methodName);
             }
 
-            methodDecl.accept(this);
+            methodDecl.accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
 
         // 4: The same name cannot be used for the same field in one class (including subclasses)
         HashSet<String> fieldNames = new HashSet<>();
-        for (var fieldDecl : classDecl.fields()) {
+        for (int i = 0; i < classDecl.fieldCount(); i++) {
+            var fieldDecl = classDecl.field(i);
             String fieldName = fieldDecl.name();
 
-            if (classDecl.superName() != null && OOUtils.hasField(classDecl.superName(), fieldName)) {
+            if (classDecl.superName() != null && OOUtils.hasField(classDecl.superNameSymbol(), fieldDecl.nameSymbol())) {
                 setInvalid(String.format("Field name %s re-declared in class %s", fieldName, classDecl.name()));
-                return;
+                return null;
             } else if (fieldNames.contains(fieldName)) {
                 setInvalid(String.format("Field name %s declared more than once in class %s", fieldName, classDecl.name()));
-                return;
+                return null;
             } else {
                 fieldNames.add(fieldName);
             }
 
             // 8: Reference type must be declared in the file
-            fieldDecl.type().accept(this);
+            fieldDecl.type().accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
-            typesStack.pop();
         }
+        return null;
     }
 
     @Override
-    public void visit(MainClass mainClass) {
-        classToSuperClasses.put(mainClass.name(), new HashSet<>());
+    public AstType visit(MainClass mainClass, Void context) {
         currentClass = mainClass.name();
-        mainClass.mainStatement().accept(this);
+        currentClassSymbol = mainClass.nameSymbol();
+        mainClass.mainStatement().accept(this, null);
+        return null;
     }
 
     @Override
-    public void visit(MethodDecl methodDecl) {
+    public AstType visit(MethodDecl methodDecl, Void context) {
         currentMethod = methodDecl.name();
-        methodVariableTypes = new HashMap<>();
+        methodVariableTypes = new SymbolMap<>();
         methodVariablesInitializationStates = new HashMap<>();
 
-        for (var formal : methodDecl.formals()) {
-            formal.accept(this);
+        for (int i = 0; i < methodDecl.formalCount(); i++) {
+            var formal = methodDecl.formal(i);
+            formal.accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
-        for (var varDecl : methodDecl.vardecls()) {
-            varDecl.accept(this);
+        for (int i = 0; i < methodDecl.varDeclCount(); i++) {
+            var varDecl = methodDecl.varDecl(i);
+            varDecl.accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
-        for (var stmt : methodDecl.body()) {
-            stmt.accept(this);
+        for (int i = 0; i < methodDecl.statementCount(); i++) {
+            var stmt = methodDecl.statement(i);
+            stmt.accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
 
         // 18: The static type of "e" in "return e" is valid according to the definition of the current method.
-        methodDecl.ret().accept(this);
+        AstType retExpType = methodDecl.ret().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        AstType retExpType = typesStack.pop();
-
-        if (retExpType.getClass() != methodDecl.returnType().getClass()) {
-            setInvalid(String.format("In method %s, the static type of e in 'return e' must match the method's return type", methodDecl.name()));
-        } else if (methodDecl.returnType() instanceof RefType) {
-            if (notSubClass(((RefType) retExpType).id(), ((RefType) methodDecl.returnType()).id())) {
+        AstType returnType = types.canonical(methodDecl.returnType());
+        if (retExpType != returnType) {
+            if (!(retExpType instanceof RefType) || !(returnType instanceof RefType)) {
+                setInvalid(String.format("In method %s, the static type of e in 'return e' must match the method's return type", methodDecl.name()));
+            } else if (notSubClass((RefType) retExpType, (RefType) returnType)) {
                 setInvalid(String.format("In method %s, the static type of e in 'return e' is not a subtype of the method's return type", methodDecl.name()));
             }
         }
+        return null;
     }
 
     @Override
-    public void visit(FormalArg formalArg) {
+    public AstType visit(FormalArg formalArg, Void context) {
         // 24: Variable redeclaration is forbidden - the same name cannot be
         // used for declarations of two formal parameters.
-        if (methodVariableTypes.containsKey(formalArg.name())) {
+        if (methodVariableTypes.containsKey(formalArg.nameSymbol())) {
             setInvalid(String.format("Formal arg %s declared more than once in method %s of class %s", formalArg.name(),
                     this.currentMethod, this.currentClass));
-            return;
+            return null;
         }
 
         // 8: Reference type must be declared in the file
-        formalArg.type().accept(this);
+        AstType type = formalArg.type().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        methodVariableTypes.put(formalArg.name(), typesStack.pop());
+        methodVariableTypes.put(formalArg.nameSymbol(), type);
+        return null;
     }
 
     @Override
-    public void visit(VarDecl varDecl) {
+    public AstType visit(VarDecl varDecl, Void context) {
         // 24: Variable redeclaration is forbidden - the same name cannot be
         // used for declarations of two local variables.
-        if (methodVariableTypes.containsKey(varDecl.name())) {
+        if (methodVariableTypes.containsKey(varDecl.nameSymbol())) {
             setInvalid(String.format("Local variable %s re-declared in method %s of class %s", varDecl.name(),
                     this.currentMethod, this.currentClass));
-            return;
+            return null;
         }
 
         // 8: Reference type must be declared in the file
-        varDecl.type().accept(this);
+        AstType type = varDecl.type().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        methodVariableTypes.put(varDecl.name(), typesStack.pop());
+        methodVariableTypes.put(varDecl.nameSymbol(), type);
         methodVariablesInitializationStates.put(varDecl.name(), InitializationState.UNINITIALIZED);
+        return null;
     }
 
     @Override
-    public void visit(BlockStatement blockStatement) {
-        for (var s : blockStatement.statements()) {
-            s.accept(this);
+    public AstType visit(BlockStatement blockStatement, Void context) {
+        for (int i = 0; i < blockStatement.statementCount(); i++) {
+            var s = blockStatement.statement(i);
+            s.accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
         }
+        return null;
     }
 
     private HashMap<String, InitializationState> getMethodVariablesInitializationStatesCopy() {
@@ -312,26 +339,25 @@ public class AstSemanticChecksVisitor implements Visitor {
     }
 
     @Override
-    public void visit(IfStatement ifStatement) {
-        ifStatement.cond().accept(this);
+    public AstType visit(IfStatement ifStatement, Void context) {
+        AstType type = ifStatement.cond().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
         // 17: The condition expression results in a boolean
-        AstType type = typesStack.pop();
-        if (!(type instanceof BoolAstType)) {
+        if (type != TypeTable.BOOLEAN) {
             setInvalid("If statement got non-boolean argument for the condition");
-            return;
+            return null;
         }
 
         HashMap<String, InitializationState> originalMethodVariablesInitializationStates =
                 getMethodVariablesInitializationStatesCopy();
 
         // then case
-        ifStatement.thencase().accept(this);
+        ifStatement.thencase().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
         HashMap<String, InitializationState> thenMethodVariablesInitializationStates =
                 getMethodVariablesInitializationStatesCopy();
@@ -339,58 +365,59 @@ public class AstSemanticChecksVisitor implements Visitor {
 
         this.methodVariablesInitializationStates = originalMethodVariablesInitializationStates;
         // else case
-        ifStatement.elsecase().accept(this);
+        ifStatement.elsecase().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
         // 15: Every local variable is definitely initialized (assigned to) before it is used (in every branch).
         // This is later check in the IdentifierExpr.
         this.methodVariablesInitializationStates = joinMethodVariablesInitializationStates(
                 thenMethodVariablesInitializationStates, this.methodVariablesInitializationStates);
+        return null;
     }
 
     @Override
-    public void visit(WhileStatement whileStatement) {
-        whileStatement.cond().accept(this);
+    public AstType visit(WhileStatement whileStatement, Void context) {
+        AstType type = whileStatement.cond().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
         // 17: The condition expression results in a boolean
-        AstType type = typesStack.pop();
-        if (!(type instanceof BoolAstType)) {
+        if (type != TypeTable.BOOLEAN) {
             setInvalid("While statement got non-boolean argument for the condition");
-            return;
+            return null;
         }
 
         HashMap<String, InitializationState> originalMethodVariablesInitializationStates =
                 getMethodVariablesInitializationStatesCopy();
 
         // while body
-        whileStatement.body().accept(this);
+        whileStatement.body().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
         // 15: Every local variable is definitely initialized (assigned to) before it is used (in every branch).
         // This is later check in the IdentifierExpr.
         this.methodVariablesInitializationStates = joinMethodVariablesInitializationStates(
                 originalMethodVariablesInitializationStates, this.methodVariablesInitializationStates);
+        return null;
     }
 
     @Override
-    public void visit(SysoutStatement sysoutStatement) {
-        sysoutStatement.arg().accept(this);
+    public AstType visit(SysoutStatement sysoutStatement, Void context) {
+        AstType type = sysoutStatement.arg().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
         // 17: The arg expression results in an int
-        AstType type = typesStack.pop();
-        if (!(type instanceof IntAstType)) {
+        if (type != TypeTable.INT) {
             setInvalid("Sysout statement got non-numeric argument");
         }
+        return null;
     }
 
     private boolean validateInitialized(String varName) {
@@ -409,395 +436,351 @@ public class AstSemanticChecksVisitor implements Visitor {
         }
     }
 
-    private void visitAssignmentLv(String lv) {
-        if (methodVariableTypes.containsKey(lv)) {
-            typesStack.push(methodVariableTypes.get(lv));
-        } else if (OOUtils.hasField(currentClass, lv)) {  // is a field
-            typesStack.push(OOUtils.getFieldType(currentClass, lv));
+    private AstType visitAssignmentLv(String lv, int lvSymbol) {
+        if (methodVariableTypes.containsKey(lvSymbol)) {
+            return methodVariableTypes.get(lvSymbol);
+        } else if (OOUtils.hasField(currentClassSymbol, lvSymbol)) {  // is a field
+            return OOUtils.getFieldType(currentClassSymbol, lvSymbol);
         } else {
             setInvalid(String.format("Reference to undefined name '%s'", lv));
+            return null;
         }
     }
 
     @Override
-    public void visit(AssignStatement assignStatement) {
-        assignStatement.rv().accept(this);
+    public AstType visit(AssignStatement assignStatement, Void context) {
+        AstType rvType = assignStatement.rv().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        AstType rvType = typesStack.pop();
-
-        visitAssignmentLv(assignStatement.lv());
+        AstType lvType = visitAssignmentLv(assignStatement.lv(), assignStatement.lvSymbol());
         if (!this.isValid) {
-            return;
+            return null;
         }
         setInitialized(assignStatement.lv());
-        AstType lvType = typesStack.pop();
 
         // 16: In an assignment "x = e", the static type of "e" is valid according to the declaration of x
-        if (rvType.getClass() != lvType.getClass()) {
-            setInvalid("Assignment (x = a) statement got non-matching types");
-        } else if (rvType instanceof RefType) {
-            if (notSubClass(((RefType) rvType).id(), ((RefType) lvType).id())) {
+        if (rvType != lvType) {
+            if (!(rvType instanceof RefType) || !(lvType instanceof RefType)) {
+                setInvalid("Assignment (x = a) statement got non-matching types");
+            } else if (notSubClass((RefType) rvType, (RefType) lvType)) {
                 setInvalid("Assignment (x = a) statement got non-matching types (one is not a subtype of the other)");
             }
         }
+        return null;
     }
 
     @Override
-    public void visit(AssignArrayStatement assignArrayStatement) {
+    public AstType visit(AssignArrayStatement assignArrayStatement, Void context) {
         // 23: n an assignment to an array "x[e1] = e2", x is int[], e1 is an int and also e2 is an int
 
         // Check rv
-        assignArrayStatement.rv().accept(this);
+        AstType rvType = assignArrayStatement.rv().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType rvType = typesStack.pop();
-        if (!(rvType instanceof IntAstType)) {
+        if (rvType != TypeTable.INT) {
             setInvalid("Array assignment (x[e1] = e2) statement got a non-numeric argument (as e2)");
-            return;
+            return null;
         }
 
         // Check index
-        assignArrayStatement.index().accept(this);
+        AstType indexType = assignArrayStatement.index().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType indexType = typesStack.pop();
-        if (!(indexType instanceof IntAstType)) {
+        if (indexType != TypeTable.INT) {
             setInvalid("Array assignment (x[e1] = e2) statement got a non-numeric argument (as e1)");
-            return;
+            return null;
         }
 
         // Check lv
         if (!validateInitialized(assignArrayStatement.lv())) {
-            return;
+            return null;
         }
 
-        visitAssignmentLv(assignArrayStatement.lv());
+        AstType lvType = visitAssignmentLv(assignArrayStatement.lv(), assignArrayStatement.lvSymbol());
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        AstType lvType = typesStack.pop();
-        if (!(lvType instanceof IntArrayAstType)) {
+        if (lvType != TypeTable.INT_ARRAY) {
             setInvalid("Array assignment (x[e1] = e2) statement got a non-array argument (as x)");
         }
+        return null;
     }
 
     @Override
-    public void visit(AndExpr e) {
-        e.e1().accept(this);
+    public AstType visit(AndExpr e, Void context) {
+        AstType type1 = e.e1().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType type1 = typesStack.pop();
-        e.e2().accept(this);
+        AstType type2 = e.e2().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        AstType type2 = typesStack.pop();
-
-        if (!(type1 instanceof BoolAstType) || !(type2 instanceof BoolAstType)) {
+        if (type1 != TypeTable.BOOLEAN || type2 != TypeTable.BOOLEAN) {
             setInvalid("And (&&) op got non-boolean arguments");
-            return;
+            return null;
         }
 
-        typesStack.push(new BoolAstType());
+        return TypeTable.BOOLEAN;
     }
 
     private void visitNumericBinaryExpr(BinaryExpr e, String op) {
         // Note: we only use this to check numeric operations ("+", "-", "*" and "<")
         // so the argument types are always int.
-        e.e1().accept(this);
+        AstType type1 = e.e1().accept(this, null);
         if (!this.isValid) {
             return;
         }
-
-        AstType type1 = typesStack.pop();
-        e.e2().accept(this);
+        AstType type2 = e.e2().accept(this, null);
         if (!this.isValid) {
             return;
         }
 
-        AstType type2 = typesStack.pop();
-
-        if (!(type1 instanceof IntAstType) || !(type2 instanceof IntAstType)) {
+        if (type1 != TypeTable.INT || type2 != TypeTable.INT) {
             setInvalid(String.format("%s op got non-numeric arguments", op));
         }
     }
 
     @Override
-    public void visit(LtExpr e) {
+    public AstType visit(LtExpr e, Void context) {
         visitNumericBinaryExpr(e, "Lt (<)");
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        typesStack.push(new BoolAstType());
+        return TypeTable.BOOLEAN;
     }
 
     @Override
-    public void visit(NotExpr e) {
-        e.e().accept(this);
+    public AstType visit(NotExpr e, Void context) {
+        AstType type = e.e().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType type = typesStack.pop();
-        if (!(type instanceof BoolAstType)) {
+        if (type != TypeTable.BOOLEAN) {
             setInvalid("Not (!) op got non-boolean argument");
-            return;
+            return null;
         }
 
-        typesStack.push(new BoolAstType());
+        return TypeTable.BOOLEAN;
     }
 
     @Override
-    public void visit(AddExpr e) {
+    public AstType visit(AddExpr e, Void context) {
         visitNumericBinaryExpr(e, "Add (+)");
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        typesStack.push(new IntAstType());
+        return TypeTable.INT;
     }
 
     @Override
-    public void visit(SubtractExpr e) {
+    public AstType visit(SubtractExpr e, Void context) {
         visitNumericBinaryExpr(e, "Subtract (-)");
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        typesStack.push(new IntAstType());
+        return TypeTable.INT;
     }
 
     @Override
-    public void visit(MultExpr e) {
+    public AstType visit(MultExpr e, Void context) {
         visitNumericBinaryExpr(e, "Mult (*)");
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        typesStack.push(new IntAstType());
+        return TypeTable.INT;
     }
 
     @Override
-    public void visit(ArrayAccessExpr e) {
+    public AstType visit(ArrayAccessExpr e, Void context) {
         // 22: In an array access x[e], x is int[] and e is an int.
-        e.arrayExpr().accept(this);
+        AstType arrayType = e.arrayExpr().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType arrayType = typesStack.pop();
-        if (!(arrayType instanceof IntArrayAstType)) {
+        if (arrayType != TypeTable.INT_ARRAY) {
             setInvalid("Array access (x[e]) op got a non-array argument (for x in the x[e])");
-            return;
+            return null;
         }
 
-        e.indexExpr().accept(this);
+        AstType indexType = e.indexExpr().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType indexType = typesStack.pop();
-        if (!(indexType instanceof IntAstType)) {
+        if (indexType != TypeTable.INT) {
             setInvalid("Array access (x[e]) op got a non-numeric argument (for e in the x[e])");
-            return;
+            return null;
         }
 
-        typesStack.push(new IntAstType());
+        return TypeTable.INT;
     }
 
 
     @Override
-    public void visit(ArrayLengthExpr e) {
+    public AstType visit(ArrayLengthExpr e, Void context) {
         // 13: The static type of the object on which length invoked is int[].
-        e.arrayExpr().accept(this);
+        AstType arrayType = e.arrayExpr().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType arrayType = typesStack.pop();
-        if (!(arrayType instanceof IntArrayAstType)) {
+        if (arrayType != TypeTable.INT_ARRAY) {
             setInvalid("Array length (x.length) op got a non-array argument");
-            return;
+            return null;
         }
 
-        typesStack.push(new IntAstType());
+        return TypeTable.INT;
     }
 
 
     @Override
-    public void visit(MethodCallExpr e) {
+    public AstType visit(MethodCallExpr e, Void context) {
         // 12: Must be called from this, new, or ref-type
         if (!SCUtils.isValidOwnerExpressionType(e.ownerExpr())) {
             setInvalid("Method call owner expression must be this, ref-type, or new object expression");
-            return;
+            return null;
         }
 
-        e.ownerExpr().accept(this);
+        AstType ownerType = e.ownerExpr().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
 
-        String methodOwnerClass = lastVisitedClassType;
         // 10: In method invocation, the static type of the object is a reference type (not int, bool, or int[])
-        AstType ownerType = typesStack.pop();
         if (!(ownerType instanceof RefType)) {
             setInvalid("If method call owner expression is ref-type, it must be an object (not int, int[] or bool)");
-            return;
+            return null;
         }
+        int methodOwnerClassSymbol = ((RefType) ownerType).idSymbol();
+        String methodOwnerClass = SymbolTable.name(methodOwnerClassSymbol);
 
         // 11: Check method exists for class
-        if (!OOUtils.hasMethod(methodOwnerClass, e.methodId())) {
+        if (!OOUtils.hasMethod(methodOwnerClassSymbol, e.methodIdSymbol())) {
             setInvalid(String.format("Method %s doesn't exist in class %s", e.methodId(), methodOwnerClass));
-            return;
+            return null;
         }
 
         // 11: Check number of args match between call and declaration
-        List<AstType> formalArgsTypes = OOUtils.getMethodFormalArgsTypes(methodOwnerClass, e.methodId());
-        if (formalArgsTypes.size() != e.actuals().size()) {
+        List<AstType> formalArgsTypes = OOUtils.getMethodFormalArgsTypes(methodOwnerClassSymbol, e.methodIdSymbol());
+        if (formalArgsTypes.size() != e.actualCount()) {
             setInvalid(String.format("Method %s of class %s called with wrong number of arguments", e.methodId(), methodOwnerClass));
-            return;
+            return null;
         }
 
         // 11: Check types of args match between call and declaration
         for (int i = 0; i < formalArgsTypes.size(); i++) {
-            e.actuals().get(i).accept(this);
+            AstType actualType = e.actual(i).accept(this, null);
             if (!this.isValid) {
-                return;
+                return null;
             }
-
-            AstType actualType = typesStack.pop();
             AstType formalArgType = formalArgsTypes.get(i);
-            if (actualType.getClass() != formalArgType.getClass()) {
+            if (!isSubtype(actualType, formalArgType)) {
                 setInvalid(String.format("Method %s of class %s called with wrong type of argument",
                         e.methodId(), methodOwnerClass));
-                return;
-            } else if (actualType instanceof RefType) {
-                if (notSubClass(((RefType) actualType).id(), ((RefType) formalArgType).id())) {
-                    setInvalid(String.format("Method %s of class %s called with wrong type of argument",
-                        e.methodId(), methodOwnerClass));
-                    return;
-                }
+                return null;
             }
         }
 
-        typesStack.push(OOUtils.getMethodReturnType(methodOwnerClass, e.methodId()));
+        return OOUtils.getMethodReturnType(methodOwnerClassSymbol, e.methodIdSymbol());
     }
 
     @Override
-    public void visit(IntegerLiteralExpr e) {
-        typesStack.push(new IntAstType());
+    public AstType visit(IntegerLiteralExpr e, Void context) {
+        return TypeTable.INT;
     }
 
     @Override
-    public void visit(TrueExpr e) {
-        typesStack.push(new BoolAstType());
+    public AstType visit(TrueExpr e, Void context) {
+        return TypeTable.BOOLEAN;
     }
 
     @Override
-    public void visit(FalseExpr e) {
-        typesStack.push(new BoolAstType());
+    public AstType visit(FalseExpr e, Void context) {
+        return TypeTable.BOOLEAN;
     }
 
     @Override
-    public void visit(IdentifierExpr e) {
+    public AstType visit(IdentifierExpr e, Void context) {
         // 14: A reference in an expression to a variable is to a local variable or formal parameter defined in the
         // current method, or to a field defined in the current class or its superclasses
         AstType type;
-        if (methodVariableTypes.containsKey(e.id())) {
-            type = methodVariableTypes.get(e.id());
-        } else if (OOUtils.hasField(currentClass, e.id())) {  // is a field
-            type = OOUtils.getFieldType(currentClass, e.id());
+        if (methodVariableTypes.containsKey(e.idSymbol())) {
+            type = methodVariableTypes.get(e.idSymbol());
+        } else if (OOUtils.hasField(currentClassSymbol, e.idSymbol())) {  // is a field
+            type = OOUtils.getFieldType(currentClassSymbol, e.idSymbol());
         } else {
             setInvalid(String.format("Reference to undefined name '%s'", e.id()));
-            return;
-        }
-
-        // In case we got here from a method call expression (as the owner expression),
-        // save the class name to classOfCalledMethod
-        if (type instanceof RefType) {
-            lastVisitedClassType = ((RefType) type).id();
+            return null;
         }
 
         // Check that local vars are initialized before use
         if (!validateInitialized(e.id())) {
-            return;
+            return null;
         }
-        typesStack.push(type);
+        return type;
     }
 
-    public void visit(ThisExpr e) {
-        // In case we got here from a method call expression (as the owner expression),
-        // save the class name to classOfCalledMethod
-        lastVisitedClassType = currentClass;
-
-        typesStack.push(new RefType(currentClass));
+    @Override
+    public AstType visit(ThisExpr e, Void context) {
+        return types.classType(currentClassSymbol);
     }
 
     @Override
-    public void visit(NewIntArrayExpr e) {
-        e.lengthExpr().accept(this);
+    public AstType visit(NewIntArrayExpr e, Void context) {
+        AstType lengthType = e.lengthExpr().accept(this, null);
         if (!this.isValid) {
-            return;
+            return null;
         }
-
-        AstType lengthType = typesStack.pop();
-        if (!(lengthType instanceof IntAstType)) {
+        if (lengthType != TypeTable.INT) {
             setInvalid("New array op got a non-numeric argument for the array length");
-            return;
+            return null;
         }
 
-        typesStack.push(new IntArrayAstType());
+        return TypeTable.INT_ARRAY;
     }
 
     @Override
-    public void visit(NewObjectExpr e) {
+    public AstType visit(NewObjectExpr e, Void context) {
         // 9: new A() is invoked for a class A that is defined somewhere in the file
-        if (OOUtils.classNotInProgram(e.classId())) {
+        if (OOUtils.classNotInProgram(e.classIdSymbol())) {
             setInvalid((String.format("New object type '%s' was not declared in the program", e.classId())));
-            return;
+            return null;
         }
 
-        typesStack.push(new RefType(e.classId()));
-        
-        // In case we got here from a method call expression (as the owner expression),
-        // save the class name to classOfCalledMethod
-        lastVisitedClassType = e.classId();
+        return types.classType(e.classIdSymbol());
     }
 
     @Override
-    public void visit(IntAstType t) {
-        typesStack.push(t);
+    public AstType visit(IntAstType t, Void context) {
+        return TypeTable.INT;
     }
 
     @Override
-    public void visit(BoolAstType t) {
-        typesStack.push(t);
+    public AstType visit(BoolAstType t, Void context) {
+        return TypeTable.BOOLEAN;
     }
 
     @Override
-    public void visit(IntArrayAstType t) {
-        typesStack.push(t);
+    public AstType visit(IntArrayAstType t, Void context) {
+        return TypeTable.INT_ARRAY;
     }
 
     @Override
-    public void visit(RefType t) {
+    public AstType visit(RefType t, Void context) {
         // 8: Reference type must be declared in the file
-        if (OOUtils.classNotInProgram(t.id())) {
+        if (OOUtils.classNotInProgram(t.idSymbol())) {
             setInvalid((String.format("Reference type '%s' was not declared in the program", t.id())));
-            return;
+            return null;
         }
-        typesStack.push(t);
+        return types.classType(t.idSymbol());
     }
 }
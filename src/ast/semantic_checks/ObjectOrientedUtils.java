@@ -6,98 +6,115 @@ import java.util.*;
 
 public class ObjectOrientedUtils {
 
-    Map<String, Map<String, MethodData>> classToMethodsMapping;
-    Map<String, Map<String, VarDecl>> classToFieldsMapping;
+    /* All the tables are keyed by the interned symbols of the method and field names (see SymbolTable), and all the
+     * types they return are the canonical ones of types. Every class only has the members it declares itself, by its
+     * node in the hierarchy; an inherited member is found by walking up the superclasses, so a deep inheritance chain
+     * does not copy the members of every ancestor into each of its classes. */
+    private final List<SymbolMap<MethodData>> declaredMethods;
+    private final List<SymbolMap<AstType>> declaredFields;
+    private final ClassHierarchy hierarchy;
+    private final TypeTable types;
 
     public static class MethodData {
         final AstType returnType;
         final List<AstType> formalArgsTypes;
 
-        private MethodData(MethodDecl methodNode) {
-            this.returnType = methodNode.returnType();
+        private MethodData(MethodDecl methodNode, TypeTable types) {
+            this.returnType = types.canonical(methodNode.returnType());
 
-            List<AstType> formalArgsTypes = new ArrayList<>();
-            for (FormalArg formalArg : methodNode.formals()) {
-                formalArgsTypes.add(formalArg.type());
+            List<AstType> formalArgsTypes = new ArrayList<>(methodNode.formalCount());
+            for (int i = 0; i < methodNode.formalCount(); i++) {
+                formalArgsTypes.add(types.canonical(methodNode.formal(i).type()));
             }
             this.formalArgsTypes = formalArgsTypes;
         }
     }
 
-    public ObjectOrientedUtils(Program program) {
-        classToMethodsMapping = createClassToMethodsMapping(program);
-        classToFieldsMapping = createClassToFieldsMapping(program);
+    public ObjectOrientedUtils(Program program, ClassHierarchy hierarchy, TypeTable types) {
+        this.hierarchy = hierarchy;
+        this.types = types;
+        declaredMethods = createDeclaredMethods();
+        declaredFields = createDeclaredFields();
     }
 
-    public AstType getFieldType(String className, String fieldName) {
-        return classToFieldsMapping.get(className).get(fieldName).type();
+    public AstType getFieldType(int classSymbol, int fieldSymbol) {
+        return findField(classSymbol, fieldSymbol);
     }
 
-    public boolean hasField(String className, String fieldName) {
-        return classToFieldsMapping.get(className).containsKey(fieldName);
+    public boolean hasField(int classSymbol, int fieldSymbol) {
+        return findField(classSymbol, fieldSymbol) != null;
     }
 
-    public boolean hasMethod(String className, String methodName) {
-        return classToMethodsMapping.get(className).containsKey(methodName);
+    public boolean hasMethod(int classSymbol, int methodSymbol) {
+        return findMethod(classSymbol, methodSymbol) != null;
     }
 
-    public AstType getMethodReturnType(String className, String methodName) {
-        return classToMethodsMapping.get(className).get(methodName).returnType;
+    public AstType getMethodReturnType(int classSymbol, int methodSymbol) {
+        return findMethod(classSymbol, methodSymbol).returnType;
     }
 
-    public List<AstType> getMethodFormalArgsTypes(String className, String methodName) {
-        return classToMethodsMapping.get(className).get(methodName).formalArgsTypes;
+    public List<AstType> getMethodFormalArgsTypes(int classSymbol, int methodSymbol) {
+        return findMethod(classSymbol, methodSymbol).formalArgsTypes;
     }
 
-    public boolean classNotInProgram(String className) {
-        return !classToFieldsMapping.containsKey(className);
+    public boolean classNotInProgram(int classSymbol) {
+        return hierarchy.nodeOf(classSymbol) == ClassHierarchy.NO_CLASS;
     }
 
-    private Map<String, Map<String, MethodData>> createClassToMethodsMapping(Program program) {
-        /* Creating a mapping between each class in the program to its methods, while taking inheritance into account.
-        * Each method has a saved index, which is consistent throughout inheritance */
-        Map<String, Map<String, MethodData>> classToMethodsMapping = new HashMap<>();
-        classToMethodsMapping.put(program.mainClass().name(), new HashMap<>());
-
-        Map<String, MethodData> classMethods;
-        for (ClassDecl classNode : program.classDecls()) {
-            classMethods = new HashMap<>();
-
-            if (classNode.superName() != null && classToMethodsMapping.containsKey(classNode.superName())) {
-                // The class has a super class, hence its inheriting its methods
-                classMethods.putAll(classToMethodsMapping.get(classNode.superName()));
+    private MethodData findMethod(int classSymbol, int methodSymbol) {
+        /* The method of the class or of its nearest superclass declaring it, which is the one that overrides the
+         * others, or null */
+        for (int node = hierarchy.nodeOf(classSymbol); node != ClassHierarchy.NO_CLASS;
+             node = hierarchy.superclass(node)) {
+            MethodData method = declaredMethods.get(node).get(methodSymbol);
+            if (method != null) {
+                return method;
             }
+        }
+        return null;
+    }
 
-            for (MethodDecl methodNode : classNode.methoddecls()) {
-                    classMethods.put(methodNode.name(), new MethodData(methodNode));
+    private AstType findField(int classSymbol, int fieldSymbol) {
+        for (int node = hierarchy.nodeOf(classSymbol); node != ClassHierarchy.NO_CLASS;
+             node = hierarchy.superclass(node)) {
+            AstType type = declaredFields.get(node).get(fieldSymbol);
+            if (type != null) {
+                return type;
             }
-            classToMethodsMapping.put(classNode.name(), classMethods);
         }
-
-        return classToMethodsMapping;
+        return null;
     }
 
-    private Map<String, Map<String, VarDecl>> createClassToFieldsMapping(Program program) {
-        /* Creating a mapping between each class in the program to its fields, while taking inheritance into account. */
-        Map<String, Map<String, VarDecl>> classToFieldsMapping = new HashMap<>();
-        classToFieldsMapping.put(program.mainClass().name(), new HashMap<>());
-
-        Map<String, VarDecl> classFields;
-        for (ClassDecl classNode : program.classDecls()) {
-            classFields = new HashMap<>();
+    private List<SymbolMap<MethodData>> createDeclaredMethods() {
+        /* Creating a mapping between each class in the program (by node) to the methods it declares. The main class
+         * has none. */
+        List<SymbolMap<MethodData>> declaredMethods = new ArrayList<>(hierarchy.size());
+        declaredMethods.add(new SymbolMap<>());
 
-            if (classNode.superName() != null && classToFieldsMapping.containsKey(classNode.superName())) {
-                // The class has a super class, hence its inheriting its fields
-                classFields.putAll(classToFieldsMapping.get(classNode.superName()));
+        for (int node = 1; node < hierarchy.size(); node++) {
+            SymbolMap<MethodData> classMethods = new SymbolMap<>();
+            for (MethodDecl methodNode : hierarchy.classDecl(node).methoddecls()) {
+                classMethods.put(methodNode.nameSymbol(), new MethodData(methodNode, types));
             }
+            declaredMethods.add(classMethods);
+        }
 
-            for (VarDecl field : classNode.fields()) {
-                classFields.put(field.name(), field);
-            }
+        return declaredMethods;
+    }
 
-            classToFieldsMapping.put(classNode.name(), classFields);
+    private List<SymbolMap<AstType>> createDeclaredFields() {
+        /* Creating a mapping between each class in the program (by node) to the fields it declares. */
+        List<SymbolMap<AstType>> declaredFields = new ArrayList<>(hierarchy.size());
+        declaredFields.add(new SymbolMap<>());
+
+        for (int node = 1; node < hierarchy.size(); node++) {
+            SymbolMap<AstType> classFields = new SymbolMap<>();
+            for (VarDecl field : hierarchy.classDecl(node).fields()) {
+                classFields.put(field.nameSymbol(), types.canonical(field.type()));
+            }
+            declaredFields.add(classFields);
         }
 
-        return classToFieldsMapping;
+        return declaredFields;
     }
 }
@@ -0,0 +1,49 @@
+package ast.semantic_checks;
+
+import ast.*;
+
+public class TypeTable {
+    /* The canonical types of a program: a single int, boolean and int[] type, and a single RefType per class (keyed by
+     * the interned symbol of the class name, see SymbolTable). The types the checks compute are always canonical, so
+     * two of them are the same type exactly when they are the same object, and checking an expression allocates no
+     * type. The declared types in the AST are separate nodes (with their own line numbers); canonical() maps them. */
+
+    public static final IntAstType INT = new IntAstType();
+    public static final BoolAstType BOOLEAN = new BoolAstType();
+    public static final IntArrayAstType INT_ARRAY = new IntArrayAstType();
+
+    private final SymbolMap<RefType> classTypes = new SymbolMap<>();
+
+    public TypeTable(Program program) {
+        classType(program.mainClass().nameSymbol());
+        for (int i = 0; i < program.classDeclCount(); i++) {
+            classType(program.classDecl(i).nameSymbol());
+        }
+    }
+
+    /* The type of the class, which is added on first use when the class is not declared in the program (the checks
+     * report the undeclared class, but may compare its type before they do) */
+    public RefType classType(int classSymbol) {
+        RefType type = classTypes.get(classSymbol);
+        if (type == null) {
+            type = new RefType(SymbolTable.identifier(classSymbol));
+            classTypes.put(classSymbol, type);
+        }
+        return type;
+    }
+
+    public AstType canonical(AstType type) {
+        if (type instanceof IntAstType) {
+            return INT;
+        } else if (type instanceof BoolAstType) {
+            return BOOLEAN;
+        } else if (type instanceof IntArrayAstType) {
+            return INT_ARRAY;
+        } else if (((RefType) type).id() == null) {
+            // Only in an AST unmarshalled from a malformed XML: a type that is equal to no other type
+            return type;
+        } else {
+            return classType(((RefType) type).idSymbol());
+        }
+    }
+}